@@ -0,0 +1,287 @@
+package application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Crash-safe file writes for DataManager.
+ *
+ * write() puts the new content in a temp file next to the target and renames it over the
+ * target, so a crash leaves either the old or the new file, never a half-written one.
+ * How hard the data is pushed to disk is set by the Durability mode:
+ *   NONE         - no fsync; fastest, but a power loss may lose recent saves
+ *   FSYNC        - fsync the file (and its directory) on every write
+ *   GROUP_COMMIT - writers hand their fsyncs to a committer thread, which waits a short
+ *                  window and syncs everything queued in one batch
+ *
+ * Each writer keeps its own latency and batching counters so the modes can be compared.
+ */
+public class AtomicFileWriter {
+
+    public enum Durability {
+        NONE, FSYNC, GROUP_COMMIT;
+
+        /**
+         * Parses a mode name such as "fsync" or "group_commit"; null or unknown values give FSYNC.
+         */
+        public static Durability fromName(String name) {
+            if (name != null) {
+                for (Durability d : values()) {
+                    if (d.name().equalsIgnoreCase(name.trim().replace('-', '_'))) return d;
+                }
+            }
+            return FSYNC;
+        }
+    }
+
+    private static final long DEFAULT_GROUP_WINDOW_MICROS = Long.getLong("pcgms.groupCommit.windowMicros", 2000);
+    private static final AtomicLong tempCounter = new AtomicLong();
+
+    private final Durability durability;
+    private final long groupWindowNanos;
+    private final BlockingQueue<SyncRequest> syncQueue = new LinkedBlockingQueue<>();
+
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+    private final AtomicLong maxWriteNanos = new AtomicLong();
+    private final AtomicLong syncBatches = new AtomicLong();
+    private final AtomicLong syncedRequests = new AtomicLong();
+
+    public AtomicFileWriter(Durability durability) {
+        this(durability, DEFAULT_GROUP_WINDOW_MICROS);
+    }
+
+    public AtomicFileWriter(Durability durability, long groupWindowMicros) {
+        this.durability = durability;
+        this.groupWindowNanos = TimeUnit.MICROSECONDS.toNanos(groupWindowMicros);
+
+        if (durability == Durability.GROUP_COMMIT) {
+            Thread committer = new Thread(this::runCommitter, "group-committer");
+            committer.setDaemon(true);
+            committer.start();
+        }
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    // --- Writes ---
+
+    /**
+     * Atomically replaces the target file's content with the given bytes.
+     */
+    public void write(Path target, byte[] data) throws IOException {
+        long start = System.nanoTime();
+        FlightEvents.FileWrite event = new FlightEvents.FileWrite();
+        event.begin();
+        Path dir = target.toAbsolutePath().getParent();
+        Path tmp = dir.resolve(target.getFileName() + "." + tempCounter.incrementAndGet() + ".tmp");
+
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                writeFully(channel, ByteBuffer.wrap(data));
+                sync(channel);
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncDirectory(dir);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        recordWrite(start);
+        commitWriteEvent(event, "replace", target, data.length);
+    }
+
+    /**
+     * Appends bytes to the end of a file (creating it if needed), then syncs per the durability mode.
+     * Used for journals, whose records carry their own checksums against torn appends.
+     */
+    public void append(Path target, byte[] data) throws IOException {
+        long start = System.nanoTime();
+        FlightEvents.FileWrite event = new FlightEvents.FileWrite();
+        event.begin();
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            writeFully(channel, ByteBuffer.wrap(data));
+            sync(channel);
+        }
+        recordWrite(start);
+        commitWriteEvent(event, "append", target, data.length);
+    }
+
+    private void commitWriteEvent(FlightEvents.FileWrite event, String kind, Path target, long bytes) {
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.path = target.toString();
+            event.bytes = bytes;
+            event.durability = durability.name();
+            event.commit();
+        }
+    }
+
+    // --- Syncing ---
+
+    /**
+     * Makes what was written to the channel durable according to the mode.
+     * In GROUP_COMMIT mode this blocks until the committer has synced the batch containing it.
+     */
+    public void sync(FileChannel channel) throws IOException {
+        switch (durability) {
+            case NONE:
+                return;
+            case FSYNC:
+                channel.force(false);
+                return;
+            case GROUP_COMMIT:
+                awaitGroupSync(new SyncRequest(channel, null));
+        }
+    }
+
+    /**
+     * Makes a rename or file creation in the directory durable. Best effort: some platforms
+     * cannot open directories for syncing, in which case this does nothing.
+     */
+    public void syncDirectory(Path dir) throws IOException {
+        switch (durability) {
+            case NONE:
+                return;
+            case FSYNC:
+                forceDirectory(dir);
+                return;
+            case GROUP_COMMIT:
+                awaitGroupSync(new SyncRequest(null, dir));
+        }
+    }
+
+    private void awaitGroupSync(SyncRequest request) throws IOException {
+        syncQueue.add(request);
+        try {
+            request.done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for group commit", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Committer loop: waits for a first request, collects everything that arrives within the
+     * group window, then syncs each file and each distinct directory once for the whole batch.
+     */
+    private void runCommitter() {
+        List<SyncRequest> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(syncQueue.take());
+                long deadline = System.nanoTime() + groupWindowNanos;
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    SyncRequest next = syncQueue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                syncQueue.drainTo(batch);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            Set<Path> dirs = new LinkedHashSet<>();
+            for (SyncRequest request : batch) {
+                if (request.dir != null) dirs.add(request.dir);
+            }
+            for (SyncRequest request : batch) {
+                if (request.channel == null) continue;
+                try {
+                    request.channel.force(false);
+                    request.done.complete(null);
+                } catch (IOException e) {
+                    request.done.completeExceptionally(e);
+                }
+            }
+            for (Path dir : dirs) forceDirectory(dir);
+            for (SyncRequest request : batch) {
+                if (request.dir != null) request.done.complete(null);
+            }
+
+            syncBatches.incrementAndGet();
+            syncedRequests.addAndGet(batch.size());
+            batch.clear();
+        }
+    }
+
+    private static void forceDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on this platform/filesystem; the rename itself is still atomic
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // --- Statistics ---
+
+    private void recordWrite(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        writeCount.incrementAndGet();
+        writeNanos.addAndGet(elapsed);
+        maxWriteNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    public long getWriteCount() { return writeCount.get(); }
+    public long getTotalWriteNanos() { return writeNanos.get(); }
+    public long getMaxWriteNanos() { return maxWriteNanos.get(); }
+    public long getSyncBatchCount() { return syncBatches.get(); }
+
+    public double getAverageWriteMicros() {
+        long count = writeCount.get();
+        return count == 0 ? 0.0 : writeNanos.get() / 1000.0 / count;
+    }
+
+    /**
+     * Average number of sync requests served per group commit (0 outside GROUP_COMMIT mode).
+     */
+    public double getAverageSyncBatchSize() {
+        long batches = syncBatches.get();
+        return batches == 0 ? 0.0 : (double) syncedRequests.get() / batches;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d writes, avg %.1f us, max %.1f us, avg sync batch %.1f",
+                durability, getWriteCount(), getAverageWriteMicros(), getMaxWriteNanos() / 1000.0,
+                getAverageSyncBatchSize());
+    }
+
+    /**
+     * A file or directory waiting for the group committer.
+     */
+    private static final class SyncRequest {
+        final FileChannel channel;
+        final Path dir;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        SyncRequest(FileChannel channel, Path dir) {
+            this.channel = channel;
+            this.dir = dir;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable, flattened copy of a Course's grading structure for what-if evaluation.
+ *
+ * Every item of every group gets a slot in one row, group after group. A scenario is a
+ * row of normalized scores (0.85 = 85%; negative = ungraded, which counts as 100% like
+ * in Course), and a batch is many rows laid end to end in one double[]. Evaluating never
+ * touches the Course or any shared mutable state, so one CompiledCourse can be used from
+ * many threads at once; each call only allocates its scratch arrays.
+ *
+ * Compiling keeps the course's own scores as the base row, along with each group's
+ * sorted values and points. Scenarios usually differ from the base in a few items, so a
+ * row is compared against the base slice by slice (Arrays.mismatch) and a Best-of-N
+ * group is only recomputed when the row changes it: the sorted base is copied
+ * and the changed values are moved into place (EvaluationGroup.replaceSorted), falling
+ * back to a full sort when many items change. Groups where every item counts are a
+ * straight sum over the row. Either way the math is EvaluationGroup.bestOfContribution,
+ * so results match calculateCurrentGrade.
+ */
+public final class CompiledCourse {
+
+	private final String courseId;
+	private final String[] groupNames;
+	private final int[] itemStart;
+	private final int[] itemCount;
+	private final int[] itemsToCount;
+	private final double[] weight;
+	private final double[] sumScale; // weight / itemsToCount: grade points per normalized point when all items count
+	private final int[] maxReplacements; // Past this many changed items, sorting the row's values is cheaper
+	private final int width;
+	private final int maxGroupSize;
+
+	// Base row: the course's scores at compile time
+	private final double[] baseScores; // As given to evaluate (ungraded = -1)
+	private final double[] baseNormalized; // As graded (ungraded = 1.0)
+	private final double[] baseSorted; // Each group's slice of baseNormalized, ascending
+	private final double[] basePoints; // Each group's grade points
+	private final double baseGrade;
+
+	/**
+	 * Compiles the course as it is now; later edits to the Course are not seen. Courses
+	 * with custom grading policies are rejected (their GradingPlan grades them).
+	 */
+	public CompiledCourse(Course course) {
+		if (course.usesCustomPolicies())
+			throw new IllegalArgumentException("Course " + course.getId() + " uses custom grading policies");
+		List<Course.EvaluationGroup> groups = course.getEvaluationGroups();
+		int count = groups.size();
+		courseId = course.getId();
+		groupNames = new String[count];
+		itemStart = new int[count];
+		itemCount = new int[count];
+		itemsToCount = new int[count];
+		weight = new double[count];
+		sumScale = new double[count];
+		maxReplacements = new int[count];
+
+		int slot = 0, maxSize = 0;
+		for (int g = 0; g < count; g++) {
+			Course.EvaluationGroup group = groups.get(g);
+			groupNames[g] = group.getName();
+			itemStart[g] = slot;
+			itemCount[g] = group.getItemCount();
+			itemsToCount[g] = group.getItemsToCount();
+			weight[g] = group.getTotalWeight();
+			sumScale[g] = itemsToCount[g] == 0 ? 0.0 : weight[g] / itemsToCount[g];
+			// Each replacement shifts up to n values; a sort is about n log n
+			maxReplacements[g] = Math.max(4, 32 - Integer.numberOfLeadingZeros(itemCount[g]));
+			slot += itemCount[g];
+			maxSize = Math.max(maxSize, itemCount[g]);
+		}
+		width = slot;
+		maxGroupSize = maxSize;
+
+		baseScores = new double[width];
+		baseNormalized = new double[width];
+		for (int g = 0; g < count; g++) {
+			Course.EvaluationGroup group = groups.get(g);
+			for (int i = 0; i < itemCount[g]; i++) {
+				baseScores[itemStart[g] + i] = group.isGraded(i) ? group.getNormalizedScore(i) : -1;
+				baseNormalized[itemStart[g] + i] = group.getNormalizedScore(i);
+			}
+		}
+
+		baseSorted = baseNormalized.clone();
+		basePoints = new double[count];
+		double grade = 0.0;
+		for (int g = 0; g < count; g++) {
+			Arrays.sort(baseSorted, itemStart[g], itemStart[g] + itemCount[g]);
+			basePoints[g] = groupPoints(g, Arrays.copyOfRange(baseSorted, itemStart[g], itemStart[g] + itemCount[g]));
+			grade += basePoints[g];
+		}
+		baseGrade = grade;
+	}
+
+	// --- Layout ---
+
+	public String getCourseId() {
+		return courseId;
+	}
+
+	/**
+	 * Number of slots in a scenario row (the course's total item count).
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	public int getGroupCount() {
+		return groupNames.length;
+	}
+
+	public String getGroupName(int group) {
+		return groupNames[group];
+	}
+
+	/**
+	 * Slot of a group's item within a scenario row.
+	 */
+	public int slot(int group, int item) {
+		if (item < 0 || item >= itemCount[group])
+			throw new IndexOutOfBoundsException("Item " + item + " of group " + groupNames[group]);
+		return itemStart[group] + item;
+	}
+
+	/**
+	 * Slot of a group's item by group name, or -1 if there is no such group or item.
+	 */
+	public int slot(String groupName, int item) {
+		for (int g = 0; g < groupNames.length; g++) {
+			if (groupNames[g].equals(groupName))
+				return item >= 0 && item < itemCount[g] ? itemStart[g] + item : -1;
+		}
+		return -1;
+	}
+
+	/**
+	 * The course's scores at compile time as a scenario row (ungraded = -1), a starting
+	 * point for what-if rows. Returns a new array each call.
+	 */
+	public double[] baseScores() {
+		return baseScores.clone();
+	}
+
+	/**
+	 * A batch of rows, each a copy of baseScores, ready for the scenario values to be filled in.
+	 */
+	public double[] baseBatch(int rows) {
+		double[] batch = new double[rows * width];
+		for (int r = 0; r < rows; r++)
+			System.arraycopy(baseScores, 0, batch, r * width, width);
+		return batch;
+	}
+
+	/**
+	 * The course grade (percent) of the base row.
+	 */
+	public double getBaseGrade() {
+		return baseGrade;
+	}
+
+	// --- Evaluation ---
+
+	/**
+	 * Course grade (percent) for one scenario row.
+	 */
+	public double evaluate(double[] row) {
+		checkLength(row, width);
+		return evaluateRow(row, 0, new double[maxGroupSize]);
+	}
+
+	/**
+	 * Course grades (percent) for a batch: rows = grades.length scenarios, each of width
+	 * getWidth(), laid end to end in scores.
+	 */
+	public void evaluateBatch(double[] scores, double[] grades) {
+		evaluateBatch(scores, grades, 0, grades.length);
+	}
+
+	/**
+	 * Evaluates rows [fromRow, toRow) of the batch into the same positions of grades, so
+	 * callers can split one batch across threads.
+	 */
+	public void evaluateBatch(double[] scores, double[] grades, int fromRow, int toRow) {
+		if (fromRow < 0 || toRow > grades.length || fromRow > toRow)
+			throw new IndexOutOfBoundsException("Rows " + fromRow + ".." + toRow + " of " + grades.length);
+		checkLength(scores, (long) grades.length * width);
+		double[] scratch = new double[maxGroupSize];
+		for (int r = fromRow; r < toRow; r++)
+			grades[r] = evaluateRow(scores, r * width, scratch);
+	}
+
+	/**
+	 * Convenience form taking one array per scenario.
+	 */
+	public double[] evaluateBatch(double[][] rows) {
+		double[] grades = new double[rows.length];
+		double[] scratch = new double[maxGroupSize];
+		for (int r = 0; r < rows.length; r++) {
+			checkLength(rows[r], width);
+			grades[r] = evaluateRow(rows[r], 0, scratch);
+		}
+		return grades;
+	}
+
+	/**
+	 * Sweep form for scenarios that each change the same few slots of the base row ("what
+	 * if 70, 75, ... 100% on the final"). values holds grades.length rows of slots.length
+	 * scores; only the groups owning those slots are recomputed, so a row costs about the
+	 * size of those groups whatever the size of the course.
+	 */
+	public void evaluateSweep(int[] slots, double[] values, double[] grades) {
+		checkLength(values, (long) grades.length * slots.length);
+		int[] slotGroup = new int[slots.length];
+		boolean[] firstOfGroup = new boolean[slots.length]; // Each changed group is recomputed once, at its first slot
+		for (int j = 0; j < slots.length; j++) {
+			if (slots[j] < 0 || slots[j] >= width)
+				throw new IndexOutOfBoundsException("Slot " + slots[j] + " of " + width);
+			for (int other = 0; other < j; other++) {
+				if (slots[other] == slots[j])
+					throw new IllegalArgumentException("Slot " + slots[j] + " given twice");
+			}
+			int g = Arrays.binarySearch(itemStart, slots[j]);
+			// Several groups can start at the same slot if some are empty; take the non-empty one
+			g = g < 0 ? -g - 2 : g;
+			while (itemCount[g] == 0)
+				g++;
+			slotGroup[j] = g;
+			firstOfGroup[j] = true;
+			for (int other = 0; other < j; other++) {
+				if (slotGroup[other] == g)
+					firstOfGroup[j] = false;
+			}
+		}
+
+		double[] scratch = new double[maxGroupSize];
+		int m = slots.length;
+		for (int r = 0; r < grades.length; r++) {
+			double grade = baseGrade;
+			for (int j = 0; j < m; j++) {
+				int g = slotGroup[j];
+				if (!firstOfGroup[j] || itemsToCount[g] == 0)
+					continue;
+
+				if (itemsToCount[g] >= itemCount[g]) {
+					// Everything counts: adjust the sum by each changed value
+					double delta = 0.0;
+					for (int c = j; c < m; c++) {
+						if (slotGroup[c] == g)
+							delta += normalize(values[r * m + c]) - baseNormalized[slots[c]];
+					}
+					grade += delta * sumScale[g];
+				} else {
+					int n = itemCount[g];
+					System.arraycopy(baseSorted, itemStart[g], scratch, 0, n);
+					for (int c = j; c < m; c++) {
+						if (slotGroup[c] == g)
+							Course.EvaluationGroup.replaceSorted(scratch, n, baseNormalized[slots[c]],
+									normalize(values[r * m + c]));
+					}
+					grade += groupPoints(g, scratch) - basePoints[g];
+				}
+			}
+			grades[r] = grade;
+		}
+	}
+
+	private double evaluateRow(double[] scores, int offset, double[] scratch) {
+		double grade = 0.0;
+		for (int g = 0; g < itemStart.length; g++) {
+			int n = itemCount[g];
+			int k = itemsToCount[g];
+			if (k == 0 || n == 0)
+				continue;
+			int start = offset + itemStart[g];
+
+			if (k >= n) {
+				// Everything counts: no selection needed, just sum the slice
+				double sum = 0.0;
+				for (int i = start; i < start + n; i++)
+					sum += normalize(scores[i]);
+				grade += sum * sumScale[g];
+				continue;
+			}
+
+			// Move the row's changes into a copy of the sorted base; sort outright if there are many.
+			// Arrays.mismatch is a JIT intrinsic that compares whole vectors at a time.
+			int base = itemStart[g];
+			int changes = 0;
+			for (int i = 0; i < n; i++) {
+				int skip = Arrays.mismatch(scores, start + i, start + n, baseScores, base + i, base + n);
+				if (skip < 0)
+					break;
+				i += skip;
+				if (changes == 0)
+					System.arraycopy(baseSorted, base, scratch, 0, n);
+				if (++changes > maxReplacements[g] || !Course.EvaluationGroup.replaceSorted(scratch, n,
+						baseNormalized[base + i], normalize(scores[start + i]))) {
+					for (int j = 0; j < n; j++)
+						scratch[j] = normalize(scores[start + j]);
+					Arrays.sort(scratch, 0, n);
+					break;
+				}
+			}
+			grade += changes == 0 ? basePoints[g] : groupPoints(g, scratch);
+		}
+		return grade;
+	}
+
+	/**
+	 * Grade points (percent) of group g from its values, sorted ascending at the start of sorted.
+	 */
+	private double groupPoints(int g, double[] sorted) {
+		if (itemsToCount[g] == 0 || itemCount[g] == 0)
+			return 0.0;
+		return Course.EvaluationGroup.bestOfContribution(sorted, itemCount[g], itemsToCount[g], weight[g]) * 100;
+	}
+
+	private static double normalize(double score) {
+		return score < 0 ? 1.0 : score;
+	}
+
+	private static void checkLength(double[] scores, long expected) {
+		if (scores.length != expected)
+			throw new IllegalArgumentException(
+					"Expected " + expected + " scores (whole rows of the course's items), got " + scores.length);
+	}
+}
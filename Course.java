@@ -1,196 +1,690 @@
-package application;
-
-import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-
-public class Course implements Serializable {
-	// file version for serialization
-	private static final long serialVersionUID = 1L;
-
-	private String id;
-	private String name;
-	private String ownerUsername;
-
-	// 5. OOP CONCEPT: POLYMORPHISM
-	// The list holds 'EvaluationGroup' objects, but they are built upon the
-	// abstract AssessmentEntity.
-	private List<EvaluationGroup> evaluationGroups;
-
-	public Course(String id, String name, String ownerUsername) {
-		this.id = id;
-		this.name = name;
-		this.ownerUsername = ownerUsername;
-		this.evaluationGroups = new ArrayList<>();
-	}
-
-	/**
-	 * Adds a new evaluation group. Uses the "Best-of-N" logic constructor.
-	 */
-	public void addEvaluationGroup(String name, double totalWeight, int totalItems, int itemsToCount) {
-		evaluationGroups.add(new EvaluationGroup(name, totalWeight, totalItems, itemsToCount));
-	}
-
-	/**
-	 * 6. OOP CONCEPT: OVERLOADING Convenience method: Adds a group where ALL items
-	 * count (itemsToCount = totalItems).
-	 */
-	public void addEvaluationGroup(String name, double totalWeight, int totalItems) {
-		// Calls the main logic with default parameters
-		addEvaluationGroup(name, totalWeight, totalItems, totalItems);
-	}
-
-	public List<EvaluationGroup> getEvaluationGroups() {
-		return evaluationGroups;
-	}
-
-	public String getId() {
-		return id;
-	}
-
-	public String getName() {
-		return name;
-	}
-
-	public String getOwnerUsername() {
-		return ownerUsername;
-	}
-
-	public double calculateCurrentGrade() {
-		double totalWeightedScore = 0.0;
-		for (EvaluationGroup group : evaluationGroups) {
-			// Polymorphic call: uses EvaluationGroup's implementation of
-			// calculateContribution
-			totalWeightedScore += group.calculateContribution();
-		}
-		return totalWeightedScore * 100;
-	}
-
-	// --- Concrete Implementation ---
-
-	/**
-	 * 7. OOP CONCEPT: INHERITANCE EvaluationGroup "is-a" AssessmentEntity. It
-	 * inherits fields (name, weight) and implements the abstract logic.
-	 */
-	public static class EvaluationGroup extends AssessmentEntity implements Serializable {
-		private static final long serialVersionUID = 1L;
-
-		private int totalItems;
-		private int itemsToCount;
-		private List<IndividualScore> individualScores;
-
-		// Constructor 1: Full logic
-		public EvaluationGroup(String name, double totalWeight, int totalItems, int itemsToCount) {
-			super(name, totalWeight); // Calls Abstract Parent Constructor
-			this.totalItems = totalItems;
-			this.itemsToCount = itemsToCount;
-			this.individualScores = new ArrayList<>();
-
-			for (int i = 1; i <= totalItems; i++) {
-				individualScores.add(new IndividualScore(name + " " + i));
-			}
-		}
-
-		/**
-		 * 8. OOP CONCEPT: OVERRIDING (Abstract Method Implementation) Provides the
-		 * specific "Best-of-N" math required by the Abstract parent.
-		 */
-		@Override
-		public double calculateContribution() {
-			if (itemsToCount == 0 || individualScores.isEmpty())
-				return 0.0;
-
-			List<Double> normalizedScores = new ArrayList<>();
-			// Gather normalized scores and handle ungraded items and assumption logic
-
-			for (IndividualScore score : individualScores) {
-				if (score.isGraded()) { // is graded comes from static class IndividualScore
-
-					normalizedScores.add(score.getNormalizedScore());
-
-				} else {
-					normalizedScores.add(1.0); // Assumption logic
-				}
-			}
-
-			normalizedScores.sort(Comparator.reverseOrder());
-
-			double sumOfBestScores = 0.0;
-			for (int i = 0; i < Math.min(itemsToCount, normalizedScores.size()); i++) {
-				sumOfBestScores += normalizedScores.get(i);
-			}
-
-			double averageBestScore = sumOfBestScores / itemsToCount;
-
-			// Uses 'totalWeight' inherited from abstract parent
-			return averageBestScore * (this.totalWeight / 100.0);
-		}
-
-		// Getters needed for Controller access
-		public int getTotalItems() {
-			return totalItems;
-		}
-
-		public int getItemsToCount() {
-			return itemsToCount;
-		}
-
-		public List<IndividualScore> getIndividualScores() {
-			return individualScores;
-		}
-
-		public void updateScore(int index, double score, double maxPoints) {
-			if (index >= 0 && index < individualScores.size()) {
-				individualScores.get(index).setScore(score, maxPoints);
-			}
-		}
-	}
-
-	// --- Helper Class (No changes needed here) ---
-	public static class IndividualScore implements Serializable {
-		private static final long serialVersionUID = 1L;
-
-		private String itemName;
-		private double score;
-		private double maxPoints;
-
-		public IndividualScore(String itemName) {
-			this.itemName = itemName;
-			this.score = -1;
-			this.maxPoints = 1;
-		}
-
-		public void setScore(double score, double maxPoints) {
-			if (score < 0 || maxPoints <= 0) {
-				this.score = -1;
-				this.maxPoints = 1;
-			} else {
-				this.score = score;
-				this.maxPoints = maxPoints;
-			}
-		}
-
-		public double getNormalizedScore() {
-			if (!isGraded())
-				return 1.0;
-			return score / maxPoints;
-		}
-
-		public boolean isGraded() {
-			return score >= 0 && maxPoints > 0;
-		}
-
-		public String getItemName() {
-			return itemName;
-		}
-
-		public double getScore() {
-			return score;
-		}
-
-		public double getMaxPoints() {
-			return maxPoints;
-		}
-	}
+package application;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+public class Course implements Serializable {
+	// file version for serialization
+	private static final long serialVersionUID = 1L;
+
+	// Latency of calculateCurrentGrade (see Metrics)
+	private static final LatencyHistogram GRADE_TIME = Metrics.timer("course.calculateCurrentGrade");
+
+	private String id;
+	private String name;
+	private String ownerUsername;
+
+	// 5. OOP CONCEPT: POLYMORPHISM
+	// The list holds 'EvaluationGroup' objects, but they are built upon the
+	// abstract AssessmentEntity.
+	private List<EvaluationGroup> evaluationGroups;
+
+	// Compiled grading policies, used once any group has a non-default policy
+	private transient GradingPlan gradingPlan;
+
+	public Course(String id, String name, String ownerUsername) {
+		this.id = id;
+		this.name = name;
+		this.ownerUsername = ownerUsername;
+		this.evaluationGroups = new ArrayList<>();
+	}
+
+	/**
+	 * Adds a new evaluation group. Uses the "Best-of-N" logic constructor.
+	 */
+	public void addEvaluationGroup(String name, double totalWeight, int totalItems, int itemsToCount) {
+		evaluationGroups.add(new EvaluationGroup(name, totalWeight, totalItems, itemsToCount));
+	}
+
+	/**
+	 * 6. OOP CONCEPT: OVERLOADING Convenience method: Adds a group where ALL items
+	 * count (itemsToCount = totalItems).
+	 */
+	public void addEvaluationGroup(String name, double totalWeight, int totalItems) {
+		// Calls the main logic with default parameters
+		addEvaluationGroup(name, totalWeight, totalItems, totalItems);
+	}
+
+	public List<EvaluationGroup> getEvaluationGroups() {
+		return evaluationGroups;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getOwnerUsername() {
+		return ownerUsername;
+	}
+
+	/**
+	 * Sums the groups' contributions. Each group caches its own contribution and only
+	 * recomputes it after one of its scores changed, so only dirty groups do any work.
+	 * Courses with custom grading policies go through their compiled GradingPlan, which
+	 * also applies replacements between groups.
+	 */
+	public double calculateCurrentGrade() {
+		long start = Metrics.startTimer();
+		double grade;
+		if (usesCustomPolicies()) {
+			grade = getGradingPlan().evaluate(evaluationGroups);
+		} else {
+			double totalWeightedScore = 0.0;
+			for (EvaluationGroup group : evaluationGroups) {
+				// Polymorphic call: uses EvaluationGroup's implementation of
+				// calculateContribution
+				totalWeightedScore += group.calculateContribution();
+			}
+			grade = totalWeightedScore * 100;
+		}
+		Metrics.stopTimer(GRADE_TIME, start);
+		return grade;
+	}
+
+	/**
+	 * True if any group grades with something other than the default Best-of-N policy.
+	 */
+	public boolean usesCustomPolicies() {
+		for (EvaluationGroup group : evaluationGroups) {
+			if (group.policy != null)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * The plan for the groups' current policies, recompiled after a policy changes.
+	 */
+	GradingPlan getGradingPlan() {
+		if (gradingPlan == null || !gradingPlan.isCompiledFor(evaluationGroups))
+			gradingPlan = new GradingPlan(evaluationGroups);
+		return gradingPlan;
+	}
+
+	/**
+	 * Finds the lowest uniform normalized score (0.85 = 85%) that every remaining ungraded
+	 * item would need for the course grade to reach the target, honouring each group's
+	 * Best-of-N rule, with a per-group breakdown. See RequiredScore.
+	 */
+	public RequiredScore calculateRequiredScore(double targetGrade) {
+		if (usesCustomPolicies())
+			return RequiredScore.solve(evaluationGroups, getGradingPlan(), targetGrade);
+		return RequiredScore.solve(evaluationGroups, targetGrade);
+	}
+
+	/**
+	 * Returns the score edits made through EvaluationGroup.updateScore since the last
+	 * drain, one per edited item holding its current score, and clears them. Used by
+	 * DataManager to journal small changes instead of rewriting the whole course.
+	 */
+	public List<ScoreDelta> drainScoreDeltas() {
+		List<ScoreDelta> deltas = new ArrayList<>();
+		for (int g = 0; g < evaluationGroups.size(); g++) {
+			evaluationGroups.get(g).drainEdits(g, deltas);
+		}
+		return deltas;
+	}
+
+	// --- Concrete Implementation ---
+
+	/**
+	 * 7. OOP CONCEPT: INHERITANCE EvaluationGroup "is-a" AssessmentEntity. It
+	 * inherits fields (name, weight) and implements the abstract logic.
+	 * Scores are stored as parallel primitive arrays (struct-of-arrays) rather than one
+	 * object per item; getIndividualScores() hands out lightweight views over them.
+	 */
+	public static class EvaluationGroup extends AssessmentEntity implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		// The serialized form keeps the original List<IndividualScore> layout, so course
+		// files written by older versions still deserialize (see writeObject/readObject).
+		private static final ObjectStreamField[] serialPersistentFields = {
+				new ObjectStreamField("totalItems", int.class),
+				new ObjectStreamField("itemsToCount", int.class),
+				new ObjectStreamField("individualScores", List.class) };
+
+		private int totalItems;
+		private int itemsToCount;
+
+		// Item i is (scores[i], maxPoints[i]); an ungraded item is stored as (-1, 1)
+		private transient double[] scores;
+		private transient double[] maxPoints;
+
+		// Items edited through updateScore since the last drain. Transient: it only
+		// describes the current in-memory session.
+		private transient BitSet editedItems;
+
+		// Grading policy; null means GradingPolicy.DEFAULT. Not part of the legacy serialized
+		// form: CourseCodec stores it.
+		private transient GradingPolicy policy;
+		private transient GradingPlan ownPlan;
+
+		// Number of ungraded items, and a count of changes for GradingPlan's cache
+		private transient int ungradedCount;
+		private transient long modCount;
+
+		// Sum of the graded items' normalized scores, for running-average policies. Kept up to
+		// date by updateScore and summed afresh every scores.length edits, so rounding cannot
+		// build up. Computed lazily.
+		private transient double gradedSum;
+		private transient int editsSinceGradedSum;
+		private transient boolean gradedSumValid;
+
+		// Incremental Best-of-N state: every item's normalized score (ungraded = 1.0) kept
+		// sorted ascending, plus the cached contribution. Rebuilt lazily (e.g. after loading).
+		// If the policy has item weights, sortedWeights holds each entry's weight and equal
+		// scores are ordered heaviest first, so the best items are still the top entries.
+		private transient double[] sortedNormalized;
+		private transient double[] sortedWeights;
+		private transient double cachedContribution;
+		private transient boolean contributionValid;
+
+		// Constructor 1: Full logic
+		public EvaluationGroup(String name, double totalWeight, int totalItems, int itemsToCount) {
+			super(name, totalWeight); // Calls Abstract Parent Constructor
+			this.totalItems = totalItems;
+			this.itemsToCount = itemsToCount;
+			initScores(totalItems);
+		}
+
+		private void initScores(int count) {
+			scores = new double[count];
+			maxPoints = new double[count];
+			Arrays.fill(scores, -1);
+			Arrays.fill(maxPoints, 1);
+			ungradedCount = count;
+		}
+
+		/**
+		 * 8. OOP CONCEPT: OVERRIDING (Abstract Method Implementation) Provides the
+		 * specific "Best-of-N" math required by the Abstract parent.
+		 * The result is cached until a score in this group changes; recomputing only sums
+		 * the top itemsToCount entries of the already-sorted array (largest first, exactly
+		 * like sorting the whole list in descending order).
+		 */
+		@Override
+		public double calculateContribution() {
+			if (itemsToCount == 0 || scores.length == 0)
+				return 0.0;
+			if (contributionValid)
+				return cachedContribution;
+
+			if (policy != null) {
+				cachedContribution = ownPlan.contribution(0, this);
+				contributionValid = true;
+				return cachedContribution;
+			}
+
+			double[] sorted = getSortedNormalized();
+
+			// Uses 'totalWeight' inherited from abstract parent
+			cachedContribution = bestOfContribution(sorted, sorted.length, itemsToCount, this.totalWeight);
+			contributionValid = true;
+			return cachedContribution;
+		}
+
+		/**
+		 * The Best-of-N math on its own: the average of the best itemsToCount of the first n
+		 * values of an ascending array, scaled by the weight. Shared with GradeProjection,
+		 * which runs it on scratch arrays instead of a group's own scores.
+		 */
+		static double bestOfContribution(double[] sorted, int n, int itemsToCount, double totalWeight) {
+			double sumOfBestScores = 0.0;
+			for (int i = 0; i < Math.min(itemsToCount, n); i++) {
+				sumOfBestScores += sorted[n - 1 - i];
+			}
+
+			double averageBestScore = sumOfBestScores / itemsToCount;
+			return averageBestScore * (totalWeight / 100.0);
+		}
+
+		/**
+		 * Returns the normalized scores sorted ascending, building them on first use.
+		 * Ungraded items count as 1.0 (Assumption logic, via getNormalizedScore).
+		 */
+		private double[] getSortedNormalized() {
+			if (sortedNormalized == null && policy != null && policy.hasItemWeights()) {
+				buildWeightedOrder();
+			} else if (sortedNormalized == null) {
+				double[] values = new double[scores.length];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = getNormalizedScore(i);
+				}
+				Arrays.sort(values);
+				sortedNormalized = values;
+			}
+			return sortedNormalized;
+		}
+
+		private void buildWeightedOrder() {
+			Integer[] order = new Integer[scores.length];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, Comparator.comparingDouble(this::getNormalizedScore)
+					.thenComparingDouble(i -> -policy.getItemWeight(i)));
+
+			double[] values = new double[order.length];
+			double[] weights = new double[order.length];
+			for (int i = 0; i < order.length; i++) {
+				values[i] = getNormalizedScore(order[i]);
+				weights[i] = policy.getItemWeight(order[i]);
+			}
+			sortedNormalized = values;
+			sortedWeights = weights;
+		}
+
+		/**
+		 * Replaces one item's value in the sorted array: binary search for the old value and
+		 * the new slot, then shift the entries in between by one.
+		 */
+		private void replaceSorted(int index, double oldValue, double newValue) {
+			boolean replaced = sortedWeights == null
+					? replaceSorted(sortedNormalized, sortedNormalized.length, oldValue, newValue)
+					: replaceSorted(sortedNormalized, sortedWeights, oldValue, newValue, policy.getItemWeight(index));
+			if (!replaced) {
+				// Out of sync; rebuild lazily
+				sortedNormalized = null;
+				sortedWeights = null;
+			}
+		}
+
+		/**
+		 * The same replacement on the first n entries of any ascending array (CompiledCourse
+		 * runs it on scratch copies). Returns false, changing nothing, if oldValue is not there.
+		 */
+		static boolean replaceSorted(double[] sorted, int n, double oldValue, double newValue) {
+			int from = Arrays.binarySearch(sorted, 0, n, oldValue);
+			if (from < 0)
+				return false;
+			int to = Arrays.binarySearch(sorted, 0, n, newValue);
+			if (to < 0)
+				to = -to - 1;
+
+			if (to > from) {
+				System.arraycopy(sorted, from + 1, sorted, from, to - 1 - from);
+				sorted[to - 1] = newValue;
+			} else {
+				System.arraycopy(sorted, to, sorted, to + 1, from - to);
+				sorted[to] = newValue;
+			}
+			return true;
+		}
+
+		/**
+		 * The weighted form: entries are (value, weight) pairs, ordered by value and then
+		 * heaviest first, and the pair (oldValue, weight) moves to newValue.
+		 */
+		private static boolean replaceSorted(double[] sorted, double[] weights, double oldValue, double newValue,
+				double weight) {
+			int n = sorted.length;
+			int from = weightedLowerBound(sorted, weights, n, oldValue, weight);
+			if (from == n || sorted[from] != oldValue || weights[from] != weight)
+				return false;
+			int to = weightedLowerBound(sorted, weights, n, newValue, weight);
+
+			if (to > from) {
+				System.arraycopy(sorted, from + 1, sorted, from, to - 1 - from);
+				System.arraycopy(weights, from + 1, weights, from, to - 1 - from);
+				sorted[to - 1] = newValue;
+				weights[to - 1] = weight;
+			} else {
+				System.arraycopy(sorted, to, sorted, to + 1, from - to);
+				System.arraycopy(weights, to, weights, to + 1, from - to);
+				sorted[to] = newValue;
+				weights[to] = weight;
+			}
+			return true;
+		}
+
+		/**
+		 * Index of the first entry not ordered before (value, weight).
+		 */
+		private static int weightedLowerBound(double[] sorted, double[] weights, int n, double value, double weight) {
+			int low = 0, high = n;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (sorted[mid] < value || (sorted[mid] == value && weights[mid] > weight))
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			return low;
+		}
+
+		/**
+		 * The incrementally maintained sorted state, for GradingPlan. Read-only for callers.
+		 */
+		double[] sortedNormalizedScores() {
+			return getSortedNormalized();
+		}
+
+		/**
+		 * The item weights in sortedNormalizedScores() order, or null if the policy has none.
+		 * Read-only for callers.
+		 */
+		double[] sortedItemWeights() {
+			getSortedNormalized();
+			return sortedWeights;
+		}
+
+		/**
+		 * Number of items without a score yet.
+		 */
+		int getUngradedCount() {
+			return ungradedCount;
+		}
+
+		/**
+		 * The sum of the graded items' normalized scores.
+		 */
+		double getGradedSum() {
+			if (!gradedSumValid) {
+				double sum = 0.0;
+				for (int i = 0; i < scores.length; i++) {
+					if (isGraded(i))
+						sum += getNormalizedScore(i);
+				}
+				gradedSum = sum;
+				editsSinceGradedSum = 0;
+				gradedSumValid = true;
+			}
+			return gradedSum;
+		}
+
+		/**
+		 * Increases with every score or policy change.
+		 */
+		long getModCount() {
+			return modCount;
+		}
+
+		public GradingPolicy getPolicy() {
+			return policy == null ? GradingPolicy.DEFAULT : policy;
+		}
+
+		/**
+		 * Sets how this group is graded (null for the default Best-of-N policy). Item
+		 * weights, if any, must cover every item.
+		 */
+		public void setPolicy(GradingPolicy policy) {
+			if (policy != null && policy.hasItemWeights() && policy.getItemWeightCount() != scores.length)
+				throw new IllegalArgumentException("Group '" + name + "' has " + scores.length + " items but the policy has "
+						+ policy.getItemWeightCount() + " item weights");
+			if (sortedWeights != null || (policy != null && policy.hasItemWeights())) {
+				// The sorted order depends on the weights; rebuild it lazily
+				sortedNormalized = null;
+				sortedWeights = null;
+			}
+			this.policy = policy == null || policy.isDefault() ? null : policy;
+			ownPlan = this.policy == null ? null : GradingPlan.standalone(this);
+			contributionValid = false;
+			modCount++;
+		}
+
+		/**
+		 * The graded items' normalized scores, sorted ascending, in a new array. Derived in
+		 * linear time from the cached sorted state, where ungraded items sit as 1.0.
+		 */
+		double[] getGradedSorted(int ungraded) {
+			double[] sorted = getSortedNormalized();
+			double[] graded = new double[sorted.length - ungraded];
+			int skip = ungraded, out = 0;
+			for (double value : sorted) {
+				if (skip > 0 && value == 1.0) {
+					skip--; // Drop one placeholder for an ungraded item; equal values are interchangeable
+					continue;
+				}
+				if (out < graded.length)
+					graded[out++] = value;
+			}
+			return graded;
+		}
+
+		// Getters needed for Controller access
+		public int getTotalItems() {
+			return totalItems;
+		}
+
+		public int getItemsToCount() {
+			return itemsToCount;
+		}
+
+		/**
+		 * Returns a read-only list of views over this group's items. Views are created on
+		 * demand and write through to the group, so IndividualScore.setScore still works.
+		 */
+		public List<IndividualScore> getIndividualScores() {
+			return new ScoreListView();
+		}
+
+		// --- Primitive per-item access (no view objects) ---
+
+		public int getItemCount() {
+			return scores.length;
+		}
+
+		public double getScore(int index) {
+			return scores[index];
+		}
+
+		public double getMaxPoints(int index) {
+			return maxPoints[index];
+		}
+
+		public boolean isGraded(int index) {
+			return scores[index] >= 0 && maxPoints[index] > 0;
+		}
+
+		public double getNormalizedScore(int index) {
+			if (!isGraded(index))
+				return 1.0;
+			return scores[index] / maxPoints[index];
+		}
+
+		/**
+		 * Item names are derived on request ("Quizzes 3") instead of being stored per item.
+		 */
+		public String getItemName(int index) {
+			return name + " " + (index + 1);
+		}
+
+		/**
+		 * Updates one item's score. Invalid input (negative score or non-positive max)
+		 * marks the item as ungraded. All score changes go through here, so the cached
+		 * Best-of-N state stays in sync.
+		 */
+		public void updateScore(int index, double score, double maxPoints) {
+			if (index >= 0 && index < scores.length) {
+				double oldValue = getNormalizedScore(index);
+				boolean wasGraded = isGraded(index);
+				if (score < 0 || maxPoints <= 0) {
+					this.scores[index] = -1;
+					this.maxPoints[index] = 1;
+				} else {
+					this.scores[index] = score;
+					this.maxPoints[index] = maxPoints;
+				}
+				if (sortedNormalized != null)
+					replaceSorted(index, oldValue, getNormalizedScore(index));
+				if (wasGraded != isGraded(index))
+					ungradedCount += wasGraded ? 1 : -1;
+				if (gradedSumValid && ++editsSinceGradedSum < scores.length)
+					gradedSum += (isGraded(index) ? getNormalizedScore(index) : 0.0) - (wasGraded ? oldValue : 0.0);
+				else
+					gradedSumValid = false;
+				contributionValid = false;
+				modCount++;
+
+				if (editedItems == null)
+					editedItems = new BitSet(scores.length);
+				editedItems.set(index);
+			}
+		}
+
+		/**
+		 * Adds one delta per item edited since the last drain to the given list, holding
+		 * the item's current (validated) score, and clears the edit tracking.
+		 */
+		void drainEdits(int groupIndex, List<ScoreDelta> out) {
+			if (editedItems == null)
+				return;
+
+			for (int i = editedItems.nextSetBit(0); i >= 0; i = editedItems.nextSetBit(i + 1)) {
+				out.add(new ScoreDelta(groupIndex, i, scores[i], maxPoints[i]));
+			}
+			editedItems = null;
+		}
+
+		// --- Serialization (legacy-compatible form) ---
+
+		private void writeObject(ObjectOutputStream out) throws IOException {
+			List<IndividualScore> items = new ArrayList<>(scores.length);
+			for (int i = 0; i < scores.length; i++) {
+				items.add(new IndividualScore(getItemName(i), scores[i], maxPoints[i]));
+			}
+			ObjectOutputStream.PutField fields = out.putFields();
+			fields.put("totalItems", totalItems);
+			fields.put("itemsToCount", itemsToCount);
+			fields.put("individualScores", items);
+			out.writeFields();
+		}
+
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+			ObjectInputStream.GetField fields = in.readFields();
+			totalItems = fields.get("totalItems", 0);
+			itemsToCount = fields.get("itemsToCount", 0);
+
+			List<?> items = (List<?>) fields.get("individualScores", null);
+			initScores(items == null ? 0 : items.size());
+			for (int i = 0; i < scores.length; i++) {
+				IndividualScore item = (IndividualScore) items.get(i);
+				scores[i] = item.getScore();
+				maxPoints[i] = item.getMaxPoints();
+				if (isGraded(i))
+					ungradedCount--;
+			}
+		}
+
+		/**
+		 * Read-only List facade over the score arrays.
+		 */
+		private final class ScoreListView extends AbstractList<IndividualScore> implements RandomAccess {
+			@Override
+			public IndividualScore get(int index) {
+				Objects.checkIndex(index, scores.length);
+				return new IndividualScore(EvaluationGroup.this, index);
+			}
+
+			@Override
+			public int size() {
+				return scores.length;
+			}
+		}
+	}
+
+	// --- Helper Class ---
+
+	/**
+	 * One assessment item's score. Instances obtained from EvaluationGroup.getIndividualScores()
+	 * are views: they read from and write through to the group's arrays. Instances created
+	 * with the public constructor are standalone and hold their own values.
+	 */
+	public static class IndividualScore implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		// Same serialized fields as the original standalone class
+		private static final ObjectStreamField[] serialPersistentFields = {
+				new ObjectStreamField("itemName", String.class),
+				new ObjectStreamField("score", double.class),
+				new ObjectStreamField("maxPoints", double.class) };
+
+		// View mode: the backing group and item index (group is null for standalone scores)
+		private transient EvaluationGroup group;
+		private transient int index;
+
+		// Standalone mode values
+		private transient String itemName;
+		private transient double score;
+		private transient double maxPoints;
+
+		public IndividualScore(String itemName) {
+			this(itemName, -1, 1);
+		}
+
+		private IndividualScore(String itemName, double score, double maxPoints) {
+			this.itemName = itemName;
+			this.score = score;
+			this.maxPoints = maxPoints;
+		}
+
+		private IndividualScore(EvaluationGroup group, int index) {
+			this.group = group;
+			this.index = index;
+		}
+
+		public void setScore(double score, double maxPoints) {
+			if (group != null) {
+				group.updateScore(index, score, maxPoints);
+			} else if (score < 0 || maxPoints <= 0) {
+				this.score = -1;
+				this.maxPoints = 1;
+			} else {
+				this.score = score;
+				this.maxPoints = maxPoints;
+			}
+		}
+
+		public double getNormalizedScore() {
+			if (!isGraded())
+				return 1.0;
+			return getScore() / getMaxPoints();
+		}
+
+		public boolean isGraded() {
+			return getScore() >= 0 && getMaxPoints() > 0;
+		}
+
+		public String getItemName() {
+			return group != null ? group.getItemName(index) : itemName;
+		}
+
+		public double getScore() {
+			return group != null ? group.getScore(index) : score;
+		}
+
+		public double getMaxPoints() {
+			return group != null ? group.getMaxPoints(index) : maxPoints;
+		}
+
+		private void writeObject(ObjectOutputStream out) throws IOException {
+			ObjectOutputStream.PutField fields = out.putFields();
+			fields.put("itemName", getItemName());
+			fields.put("score", getScore());
+			fields.put("maxPoints", getMaxPoints());
+			out.writeFields();
+		}
+
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+			ObjectInputStream.GetField fields = in.readFields();
+			itemName = (String) fields.get("itemName", null);
+			score = fields.get("score", -1.0);
+			maxPoints = fields.get("maxPoints", 1.0);
+		}
+	}
 }
\ No newline at end of file
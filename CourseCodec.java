@@ -0,0 +1,189 @@
+package application;
+
+import java.io.*;
+
+/**
+ * Compact, versioned binary format for Course files, replacing Java Serialization.
+ *
+ * Layout (all values big-endian, strings as modified UTF-8 via DataOutput.writeUTF):
+ *   int    magic ("PCGC")
+ *   short  format version
+ *   UTF    id, name, ownerUsername
+ *   int    group count
+ *   per group:
+ *     UTF    name
+ *     double totalWeight
+ *     int    totalItems, itemsToCount
+ *     long[] graded bitmap, one bit per item ((totalItems + 63) / 64 words)
+ *     per graded item: double score, double maxPoints
+ *     byte   policy flags (version 2+; 0 = default Best-of-N policy), then per set flag:
+ *            int dropLowest | double[totalItems] item weights | double bonus cap |
+ *            UTF replacement group | byte ungraded assumption (ordinal)
+ *
+ * Ungraded items cost a single bit, so a mostly empty course stays tiny.
+ * decode() also accepts files written by ObjectOutputStream so old data keeps loading.
+ */
+public class CourseCodec {
+
+    public static final int MAGIC = 0x50434743; // "PCGC"
+    public static final short VERSION = 2;
+
+    // Grading policy fields present in a group (version 2+)
+    private static final int POLICY_DROP_LOWEST = 1;
+    private static final int POLICY_ITEM_WEIGHTS = 1 << 1;
+    private static final int POLICY_BONUS_CAP = 1 << 2;
+    private static final int POLICY_REPLACEMENT = 1 << 3;
+    private static final int POLICY_UNGRADED = 1 << 4;
+
+    // First two bytes of any ObjectOutputStream (STREAM_MAGIC)
+    private static final int JAVA_SERIALIZATION_MAGIC = 0xACED;
+
+    /**
+     * Encodes a course into a byte array in the current format.
+     */
+    public static byte[] encode(Course course) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            write(course, out);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a course in the current format.
+     */
+    public static void write(Course course, DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeUTF(course.getId());
+        out.writeUTF(course.getName());
+        out.writeUTF(course.getOwnerUsername());
+
+        out.writeInt(course.getEvaluationGroups().size());
+        for (Course.EvaluationGroup group : course.getEvaluationGroups()) {
+            out.writeUTF(group.getName());
+            out.writeDouble(group.getTotalWeight());
+            out.writeInt(group.getItemCount()); // Always equals getTotalItems() for groups built by Course
+            out.writeInt(group.getItemsToCount());
+
+            // Bitmap of graded items, then only the graded (score, max) pairs
+            int n = group.getItemCount();
+            long[] graded = new long[(n + 63) / 64];
+            for (int i = 0; i < n; i++) {
+                if (group.isGraded(i)) graded[i >> 6] |= 1L << i;
+            }
+            for (long word : graded) out.writeLong(word);
+
+            for (int i = 0; i < n; i++) {
+                if ((graded[i >> 6] & (1L << i)) != 0) {
+                    out.writeDouble(group.getScore(i));
+                    out.writeDouble(group.getMaxPoints(i));
+                }
+            }
+
+            writePolicy(group.getPolicy(), out);
+        }
+    }
+
+    private static void writePolicy(GradingPolicy policy, DataOutput out) throws IOException {
+        int flags = 0;
+        if (policy.getDropLowest() != 0) flags |= POLICY_DROP_LOWEST;
+        if (policy.hasItemWeights()) flags |= POLICY_ITEM_WEIGHTS;
+        if (policy.hasBonusCap()) flags |= POLICY_BONUS_CAP;
+        if (policy.getReplacedBy() != null) flags |= POLICY_REPLACEMENT;
+        if (policy.getUngraded() != GradingPolicy.Ungraded.FULL) flags |= POLICY_UNGRADED;
+        out.writeByte(flags);
+
+        if ((flags & POLICY_DROP_LOWEST) != 0) out.writeInt(policy.getDropLowest());
+        if ((flags & POLICY_ITEM_WEIGHTS) != 0) {
+            for (int i = 0; i < policy.getItemWeightCount(); i++) out.writeDouble(policy.getItemWeight(i));
+        }
+        if ((flags & POLICY_BONUS_CAP) != 0) out.writeDouble(policy.getBonusCap());
+        if ((flags & POLICY_REPLACEMENT) != 0) out.writeUTF(policy.getReplacedBy());
+        if ((flags & POLICY_UNGRADED) != 0) out.writeByte(policy.getUngraded().ordinal());
+    }
+
+    private static GradingPolicy readPolicy(DataInput in, int totalItems) throws IOException {
+        int flags = in.readUnsignedByte();
+        GradingPolicy policy = GradingPolicy.DEFAULT;
+        if (flags == 0) return policy;
+
+        try {
+            if ((flags & POLICY_DROP_LOWEST) != 0) policy = policy.withDropLowest(in.readInt());
+            if ((flags & POLICY_ITEM_WEIGHTS) != 0) {
+                double[] weights = new double[totalItems];
+                for (int i = 0; i < totalItems; i++) weights[i] = in.readDouble();
+                policy = policy.withItemWeights(weights);
+            }
+            if ((flags & POLICY_BONUS_CAP) != 0) policy = policy.withBonusCap(in.readDouble());
+            if ((flags & POLICY_REPLACEMENT) != 0) policy = policy.withReplacementFrom(in.readUTF());
+            if ((flags & POLICY_UNGRADED) != 0) {
+                int ordinal = in.readUnsignedByte();
+                GradingPolicy.Ungraded[] values = GradingPolicy.Ungraded.values();
+                if (ordinal >= values.length) throw new IOException("Unknown ungraded assumption " + ordinal);
+                policy = policy.withUngraded(values[ordinal]);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid grading policy", e);
+        }
+        return policy;
+    }
+
+    /**
+     * Decodes a course file's contents, in either the current binary format or the
+     * legacy Java Serialization format.
+     */
+    public static Course decode(byte[] data) throws IOException {
+        if (isLegacyFormat(data)) {
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+                return (Course) ois.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unknown class in legacy course file", e);
+            }
+        }
+        return read(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    /**
+     * Reads a course in the current format.
+     */
+    public static Course read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("Not a course file (bad magic number)");
+        short version = in.readShort();
+        if (version > VERSION) throw new IOException("Unsupported course format version " + version);
+
+        Course course = new Course(in.readUTF(), in.readUTF(), in.readUTF());
+
+        int groupCount = in.readInt();
+        for (int g = 0; g < groupCount; g++) {
+            String name = in.readUTF();
+            double totalWeight = in.readDouble();
+            int totalItems = in.readInt();
+            int itemsToCount = in.readInt();
+            course.addEvaluationGroup(name, totalWeight, totalItems, itemsToCount);
+            Course.EvaluationGroup group = course.getEvaluationGroups().get(g);
+
+            long[] graded = new long[(totalItems + 63) / 64];
+            for (int w = 0; w < graded.length; w++) graded[w] = in.readLong();
+
+            for (int i = 0; i < totalItems; i++) {
+                if ((graded[i >> 6] & (1L << i)) != 0) {
+                    double score = in.readDouble();
+                    double maxPoints = in.readDouble();
+                    group.updateScore(i, score, maxPoints);
+                }
+            }
+
+            if (version >= 2) group.setPolicy(readPolicy(in, totalItems));
+        }
+        course.drainScoreDeltas(); // Decoded scores are the saved state, not pending edits
+        return course;
+    }
+
+    /**
+     * True if the data was written by ObjectOutputStream (pre-codec course files).
+     */
+    public static boolean isLegacyFormat(byte[] data) {
+        return data.length >= 2 && ((data[0] & 0xff) << 8 | (data[1] & 0xff)) == JAVA_SERIALIZATION_MAGIC;
+    }
+}
@@ -1,221 +1,592 @@
-package application;
-
-import javafx.event.ActionEvent;
-import javafx.fxml.FXML;
-import javafx.scene.control.Label;
-import javafx.scene.control.TextField;
-import javafx.scene.layout.HBox;
-import javafx.scene.layout.Pane;
-import javafx.scene.layout.VBox;
-import javafx.scene.text.Font;
-import java.io.IOException;
-
-public class CourseDetailsController {
-
-	// FXML Elements
-	@FXML
-	private Label courseTitleLabel;
-	@FXML
-	private Label courseIdLabel;
-	@FXML
-	private Label currentGradeLabel;
-	@FXML
-	private VBox scoresVBox;
-
-	@FXML
-	private Pane chartPane; // Replaced GridPane with Pane for visualization
-
-	private Main mainApp;
-	private Course course;
-
-	public void setMainApp(Main mainApp) {
-		this.mainApp = mainApp;
-	}
-
-	/**
-	 * Called by Main.java to inject the selected Course object and initialize the
-	 * view.
-	 */
-	public void setCourse(Course course) {
-		this.course = course;
-		courseTitleLabel.setText(course.getName());
-		courseIdLabel.setText(course.getId());
-
-		loadEvaluationStructure();
-		updateGradeDisplay();
-		loadWeightDistributionChart();
-	}
-
-	/**
-	 * Dynamically creates UI groups and score input fields based on the Course
-	 * model.
-	 */
-	private void loadEvaluationStructure() {
-		scoresVBox.getChildren().clear();
-
-		for (Course.EvaluationGroup group : course.getEvaluationGroups()) {
-			// 1. Group Header (e.g., "Quizzes (Best 2 of 3) - 15%")
-			Label groupHeader = new Label(group.getName() + " (Best " + group.getItemsToCount() + " of "
-					+ group.getTotalItems() + ") - " + group.getTotalWeight() + "%");
-			groupHeader.setStyle("-fx-font-weight: bold; -fx-text-fill: #2c5282; -fx-font-size: 14px;");
-			scoresVBox.getChildren().add(groupHeader);
-
-			// 2. Container for individual scores within the group
-			VBox groupScoresVBox = new VBox(5);
-
-			int index = 0;
-			for (Course.IndividualScore item : group.getIndividualScores()) {
-				// HBox for: Item Name | Score Field | Max Field
-				HBox scoreRow = createScoreRow(group, item, index);
-				groupScoresVBox.getChildren().add(scoreRow);
-				index++;
-			}
-			scoresVBox.getChildren().add(groupScoresVBox);
-		}
-	}
-
-	/**
-	 * Creates a single HBox row for entering score and max points for an individual
-	 * item.
-	 */
-	private HBox createScoreRow(Course.EvaluationGroup group, Course.IndividualScore item, int index) {
-		HBox row = new HBox(120);
-		row.setStyle(
-				"-fx-padding: 5 10 5 10; -fx-background-color: white; -fx-border-color: #e2e8f0; -fx-border-radius: 5;");
-		 row.setAlignment(javafx.geometry.Pos.CENTER_LEFT); 
-
-		Label nameLabel = new Label(item.getItemName() + ":");
-		nameLabel.setPrefWidth(120);
-
-		// Score Input Field
-		TextField scoreField = new TextField();
-		scoreField.setPromptText("Score");
-		scoreField.setPrefWidth(60);
-
-		// Max Points Input Field
-		TextField maxField = new TextField();
-		maxField.setPromptText("Max");
-		maxField.setPrefWidth(60);
-
-		Label outOfLabel = new Label("out of");
-
-		// Set initial values if data exists
-		if (item.isGraded()) {
-			scoreField.setText(String.valueOf(item.getScore()));
-			maxField.setText(String.valueOf(item.getMaxPoints()));
-		}
-
-		// Listener to update the model, recalculate grade, and update required score
-		Runnable updateAction = () -> {
-			try {
-				// Parse input. If blank, assume 0 for score and 1 for max (to allow ungrading)
-				double score = scoreField.getText().isBlank() ? -1 : Double.parseDouble(scoreField.getText());
-				double max = maxField.getText().isBlank() ? 1 : Double.parseDouble(maxField.getText());
-				group.updateScore(index, score, max);
-				updateGradeDisplay();
-				
-
-			} catch (NumberFormatException e) {
-			}
-		};
-
-		scoreField.textProperty().addListener((obs, oldVal, newVal) -> updateAction.run());
-		maxField.textProperty().addListener((obs, oldVal, newVal) -> updateAction.run());
-
-		row.getChildren().addAll(nameLabel, scoreField, outOfLabel, maxField);
-		return row;
-	}
-
-	/**
-	 * Updates the main grade display label using the Course model's calculation.
-	 */
-	private void updateGradeDisplay() {
-		double grade = course.calculateCurrentGrade();
-		currentGradeLabel.setText(String.format("%.2f%%", grade));
-
-		// Dynamic Color coding for grade status
-
-		if (grade >= 93)
-			currentGradeLabel.setStyle("-fx-text-fill: #2ECC71; -fx-font-weight: bold; -fx-font-size: 36px;");
-		else if (grade >= 90)
-			currentGradeLabel.setStyle("-fx-text-fill: #48C06C; -fx-font-weight: bold; -fx-font-size: 36px;");
-		else if (grade >= 87)
-			currentGradeLabel.setStyle("-fx-text-fill: #6CDE8B; -fx-font-weight: bold; -fx-font-size: 36px;");
-		else if (grade >= 83)
-			currentGradeLabel.setStyle("-fx-text-fill: #A0E88E; -fx-font-weight: bold; -fx-font-size: 36px;");
-		else if (grade >= 80)
-			currentGradeLabel.setStyle("-fx-text-fill: #F4D03F; -fx-font-weight: bold; -fx-font-size: 36px;");
-		else if (grade >= 77)
-			currentGradeLabel.setStyle("-fx-text-fill: #F7B26E; -fx-font-weight: bold; -fx-font-size: 36px;");
-		else if (grade >= 73)
-			currentGradeLabel.setStyle("-fx-text-fill: #FA9F68; -fx-font-weight: bold; -fx-font-size: 36px;");
-		else if (grade >= 70)
-			currentGradeLabel.setStyle("-fx-text-fill: #F48B57; -fx-font-weight: bold; -fx-font-size: 36px;");
-		else if (grade >= 67)
-			currentGradeLabel.setStyle("-fx-text-fill: #E76E4B; -fx-font-weight: bold; -fx-font-size: 36px;");
-		else if (grade >= 60)
-			currentGradeLabel.setStyle("-fx-text-fill: #D14739; -fx-font-weight: bold; -fx-font-size: 36px;");
-		else
-			currentGradeLabel.setStyle("-fx-text-fill: #C0392B; -fx-font-weight: bold; -fx-font-size: 36px;");
-	}
-
-	/**
-	 * Visualization: Loads a simple bar chart showing weight distribution.
-	 */
-	private void loadWeightDistributionChart() {
-		VBox chartContent = new VBox(10);
-		chartContent.setStyle("-fx-padding: 15;");
-
-		double totalWeight = 100.0;
-	
-
-		for (Course.EvaluationGroup group : course.getEvaluationGroups()) {
-			double weight = group.getTotalWeight();
-
-			// Container for the bar and text
-			HBox entry = new HBox(5);
-
-			// Text Label (e.g., "Midterm 40%")
-			Label label = new Label(group.getName() + " (" + (int) weight + "%)");
-			label.setPrefWidth(120);
-			label.setFont(Font.font("System", 12));
-			entry.getChildren().add(label);
-
-			// Bar visualization
-			HBox bar = new HBox();
-			bar.setStyle("-fx-background-color: #3182ce; -fx-background-radius: 3; -fx-padding: 3;");
-			double barWidth = (weight / totalWeight) * 240;
-			bar.setPrefWidth(barWidth);
-			bar.setPrefHeight(15);
-
-			entry.getChildren().add(bar);
-			chartContent.getChildren().add(entry);
-		}
-
-		// Replace the placeholder content
-		chartPane.getChildren().clear();
-		chartPane.getChildren().add(chartContent);
-	}
-
-	// --- Button Handlers ---
-
-	@FXML
-	private void handleBack(ActionEvent event) {
-		if (mainApp != null)
-			mainApp.showDashboardView();
-	}
-
-	@FXML
-	private void handleSaveChanges(ActionEvent event) {
-		try {
-			// Save the updated course object (with updated scores) to the file system.
-			DataManager.saveCourse(course);
-			System.out.println("Grades saved successfully for " + course.getName());
-			if (mainApp != null)
-				mainApp.showDashboardView();
-		} catch (IOException e) {
-			System.err.println("Failed to save grades to file.");
-			e.printStackTrace();
-		}
-	}
+package application;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.Tooltip;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Font;
+import javafx.util.Duration;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+public class CourseDetailsController implements IViewController {
+
+	// Score edits are applied and the grade recalculated at most once per this window
+	private static final double RECALC_DEBOUNCE_MS = 50;
+
+	// Accepted numeric input: optional minus, digits with an optional fraction (e.g. "7", "7.5", ".5")
+	private static final Pattern NUMBER = Pattern.compile("-?(\\d+(\\.\\d*)?|\\.\\d+)");
+	private static final String INVALID_FIELD_STYLE = "-fx-border-color: #e53e3e;";
+
+	// Width of a 100% bar in the projection chart
+	private static final double PROJECTION_BAR_WIDTH = 160;
+
+	// Daemon thread so a running projection never keeps the application alive
+	private static final ExecutorService PROJECTOR = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "grade-projection");
+		t.setDaemon(true);
+		return t;
+	});
+
+	// FXML Elements
+	@FXML
+	private Label courseTitleLabel;
+	@FXML
+	private Label courseIdLabel;
+	@FXML
+	private Label currentGradeLabel;
+	@FXML
+	private ListView<ScoreRow> scoresListView;
+	@FXML
+	private TextField targetGradeField;
+	@FXML
+	private Label requiredScoreLabel;
+	@FXML
+	private VBox projectionBox;
+
+	@FXML
+	private Pane chartPane; // Replaced GridPane with Pane for visualization
+
+	private Main mainApp;
+	private Course course;
+
+	// Every header and item row of the course, in display order (collapsed ones included)
+	private final List<ScoreRow> allRows = new ArrayList<>();
+
+	// Rows whose text changed since the last recalculation (each row queued once)
+	private final Set<ScoreRow> pendingEdits = new LinkedHashSet<>();
+	private final PauseTransition recalcDelay = new PauseTransition(Duration.millis(RECALC_DEBOUNCE_MS));
+	private String lastGradeStyle;
+	private final Tooltip requiredScoreTooltip = new Tooltip();
+
+	// The running projection, if any; snapshots from an older run are ignored
+	private Task<GradeProjection.Snapshot> projectionTask;
+	private long projectionRun;
+	private Label projectionStatus;
+	private HBox[] projectionBars;
+	private Label[] projectionChances;
+
+	public CourseDetailsController() {
+		recalcDelay.setOnFinished(e -> flushPendingEdits());
+	}
+
+	@FXML
+	private void initialize() {
+		requiredScoreLabel.setTooltip(requiredScoreTooltip);
+		targetGradeField.textProperty().addListener((obs, oldVal, newVal) -> {
+			if (course != null)
+				updateRequiredScore();
+		});
+	}
+
+	@Override
+	public void setMainApp(Main mainApp) {
+		this.mainApp = mainApp;
+	}
+
+	/**
+	 * Drops the previous course's rows and pending edits. Main calls this before
+	 * setCourse each time the reused view is shown.
+	 */
+	@Override
+	public void refresh() {
+		recalcDelay.stop();
+		pendingEdits.clear();
+		allRows.clear();
+		scoresListView.getItems().clear();
+		course = null;
+		lastGradeStyle = null;
+		requiredScoreLabel.setText("");
+		requiredScoreTooltip.setText("");
+		cancelProjection();
+		projectionBox.getChildren().clear();
+		projectionBars = null;
+	}
+
+	/**
+	 * Called by Main.java to inject the selected Course object and initialize the
+	 * view.
+	 */
+	public void setCourse(Course course) {
+		this.course = course;
+		courseTitleLabel.setText(course.getName());
+		courseIdLabel.setText(course.getId());
+
+		loadEvaluationStructure();
+		updateGradeDisplay();
+		loadWeightDistributionChart();
+	}
+
+	/**
+	 * Builds the row models for the virtualized score list: one header row per
+	 * evaluation group followed by one row per item. Only the rows scrolled into view
+	 * get cells (and nodes); cells are reused as the list scrolls.
+	 */
+	private void loadEvaluationStructure() {
+		pendingEdits.clear();
+		allRows.clear();
+
+		for (Course.EvaluationGroup group : course.getEvaluationGroups()) {
+			// 1. Group Header (e.g., "Quizzes (Best 2 of 3) - 15%")
+			ScoreRow header = ScoreRow.header(group);
+			allRows.add(header);
+
+			// 2. One row per individual score, seeded with the saved values
+			for (int index = 0; index < group.getItemCount(); index++) {
+				ScoreRow row = ScoreRow.item(group, index, header);
+				if (group.isGraded(index)) {
+					row.scoreText = String.valueOf(group.getScore(index));
+					row.maxText = String.valueOf(group.getMaxPoints(index));
+				}
+				allRows.add(row);
+			}
+		}
+
+		scoresListView.setCellFactory(list -> new ScoreCell());
+		refreshVisibleRows();
+	}
+
+	/**
+	 * Shows every header, and the item rows of groups that are not collapsed.
+	 */
+	private void refreshVisibleRows() {
+		List<ScoreRow> visible = new ArrayList<>(allRows.size());
+		for (ScoreRow row : allRows) {
+			if (row.isHeader() || !row.header.collapsed)
+				visible.add(row);
+		}
+		scoresListView.getItems().setAll(visible);
+	}
+
+	private void toggleGroup(ScoreRow header) {
+		header.collapsed = !header.collapsed;
+		refreshVisibleRows();
+	}
+
+	/**
+	 * Queues a row for the next recalculation and (re)starts the debounce timer.
+	 */
+	private void queueEdit(ScoreRow row) {
+		pendingEdits.add(row);
+		recalcDelay.playFromStart();
+	}
+
+	/**
+	 * Applies every queued row to the model, then recalculates the grade once.
+	 * Rows with invalid input keep their last valid score.
+	 */
+	private void flushPendingEdits() {
+		recalcDelay.stop();
+		if (pendingEdits.isEmpty())
+			return;
+
+		FlightEvents.GradeRecalculation event = new FlightEvents.GradeRecalculation();
+		event.begin();
+		event.edits = pendingEdits.size();
+		for (ScoreRow row : pendingEdits) {
+			// If blank, use -1 for score and 1 for max (to allow ungrading)
+			double score = parseOrDefault(row.scoreText, -1);
+			double max = parseOrDefault(row.maxText, 1);
+			if (!Double.isNaN(score) && !Double.isNaN(max)) {
+				row.group.updateScore(row.index, score, max);
+			}
+		}
+		pendingEdits.clear();
+		updateGradeDisplay();
+		if (event.shouldCommit()) {
+			event.courseId = course.getId();
+			event.grade = course.calculateCurrentGrade();
+			event.commit();
+		}
+	}
+
+	/**
+	 * True if the text is blank or a number we accept; checked without exceptions.
+	 */
+	private static boolean isValidNumber(String text) {
+		String trimmed = text.trim();
+		return trimmed.isEmpty() || NUMBER.matcher(trimmed).matches();
+	}
+
+	/**
+	 * Parses a number without throwing: blank gives the default, invalid text gives NaN.
+	 */
+	private static double parseOrDefault(String text, double blankValue) {
+		if (!isValidNumber(text))
+			return Double.NaN;
+		String trimmed = text.trim();
+		return trimmed.isEmpty() ? blankValue : Double.parseDouble(trimmed);
+	}
+
+	/**
+	 * Updates the main grade display label using the Course model's calculation.
+	 */
+	private void updateGradeDisplay() {
+		double grade = course.calculateCurrentGrade();
+		currentGradeLabel.setText(String.format("%.2f%%", grade));
+
+		// Dynamic Color coding for grade status
+		String color = GradeScale.color(GradeScale.band(grade));
+
+		// Restyling forces a CSS pass, so only do it when the color band actually changes
+		String style = "-fx-text-fill: " + color + "; -fx-font-weight: bold; -fx-font-size: 36px;";
+		if (!style.equals(lastGradeStyle)) {
+			currentGradeLabel.setStyle(style);
+			lastGradeStyle = style;
+		}
+		updateRequiredScore();
+	}
+
+	/**
+	 * Shows the score every remaining item needs for the target grade, with the
+	 * per-group breakdown in the label's tooltip. Runs after each recalculation.
+	 */
+	private void updateRequiredScore() {
+		double target = parseOrDefault(targetGradeField.getText(), Double.NaN);
+		if (Double.isNaN(target)) {
+			targetGradeField.setStyle(targetGradeField.getText().trim().isEmpty() ? "" : INVALID_FIELD_STYLE);
+			requiredScoreLabel.setText("");
+			requiredScoreTooltip.setText("");
+			return;
+		}
+		targetGradeField.setStyle("");
+
+		RequiredScore required = course.calculateRequiredScore(target);
+		double needed = required.getRequiredScore();
+		String text;
+		if (required.getRemainingItems() == 0)
+			text = course.calculateCurrentGrade() >= target ? "Target reached." : "No items left to raise the grade.";
+		else if (needed == 0.0)
+			text = "Target secured, even with zeros on the " + required.getRemainingItems() + " remaining items.";
+		else if (Double.isInfinite(needed))
+			text = "Target out of reach: the remaining items cannot count for enough.";
+		else if (!required.isReachable())
+			text = String.format("Needs %.1f%% on the %d remaining items (more than full marks).", needed * 100,
+					required.getRemainingItems());
+		else
+			text = String.format("Needs %.1f%% on the %d remaining items.", needed * 100, required.getRemainingItems());
+		requiredScoreLabel.setText(text);
+
+		StringBuilder breakdown = new StringBuilder();
+		for (int g = 0; g < required.getGroupCount(); g++) {
+			if (g > 0)
+				breakdown.append('\n');
+			breakdown.append(String.format("%s: %d left, %.2f of %.2f possible points", required.getGroupName(g),
+					required.getGroupRemainingItems(g), required.getGroupPoints(g), required.getGroupMaxPoints(g)));
+		}
+		requiredScoreTooltip.setText(breakdown.toString());
+	}
+
+	/**
+	 * Visualization: Loads a simple bar chart showing weight distribution.
+	 */
+	private void loadWeightDistributionChart() {
+		VBox chartContent = new VBox(10);
+		chartContent.setStyle("-fx-padding: 15;");
+
+		double totalWeight = 100.0;
+	
+
+		for (Course.EvaluationGroup group : course.getEvaluationGroups()) {
+			double weight = group.getTotalWeight();
+
+			// Container for the bar and text
+			HBox entry = new HBox(5);
+
+			// Text Label (e.g., "Midterm 40%")
+			Label label = new Label(group.getName() + " (" + (int) weight + "%)");
+			label.setPrefWidth(120);
+			label.setFont(Font.font("System", 12));
+			entry.getChildren().add(label);
+
+			// Bar visualization
+			HBox bar = new HBox();
+			bar.setStyle("-fx-background-color: #3182ce; -fx-background-radius: 3; -fx-padding: 3;");
+			double barWidth = (weight / totalWeight) * 240;
+			bar.setPrefWidth(barWidth);
+			bar.setPrefHeight(15);
+
+			entry.getChildren().add(bar);
+			chartContent.getChildren().add(entry);
+		}
+
+		// Replace the placeholder content
+		chartPane.getChildren().clear();
+		chartPane.getChildren().add(chartContent);
+	}
+
+	// --- Button Handlers ---
+
+	// --- Grade Projection ---
+
+	/**
+	 * Starts a Monte Carlo projection of the final grade. The course is compiled here, on
+	 * the FX thread; the student's other courses are read for the score history and the
+	 * trials run in the background, with each snapshot redrawing the band chart.
+	 */
+	@FXML
+	private void handleProjectGrade(ActionEvent event) {
+		flushPendingEdits();
+		cancelProjection();
+		long run = projectionRun;
+		showProjectionRows();
+		if (course.usesCustomPolicies()) {
+			projectionStatus.setText("Projection only supports Best-of-N grading.");
+			return;
+		}
+
+		GradeProjection projection = new GradeProjection(course);
+		double[] courseHistory = GradeProjection.scoreHistory(List.of(course));
+		String owner = course.getOwnerUsername();
+		String courseId = course.getId();
+
+		projectionStatus.setText("Projecting...");
+		Task<GradeProjection.Snapshot> task = new Task<>() {
+			@Override
+			protected GradeProjection.Snapshot call() {
+				List<Course> others = new ArrayList<>();
+				for (Course other : DataManager.loadCoursesForUser(owner)) {
+					if (!other.getId().equals(courseId))
+						others.add(other);
+				}
+				double[] otherHistory = GradeProjection.scoreHistory(others);
+				double[] history = Arrays.copyOf(courseHistory, courseHistory.length + otherHistory.length);
+				System.arraycopy(otherHistory, 0, history, courseHistory.length, otherHistory.length);
+				if (history.length == 0)
+					return null;
+
+				return projection.run(history, GradeProjection.DEFAULT_TRIALS, System.nanoTime(), snapshot -> Platform.runLater(() -> {
+					if (run == projectionRun)
+						showProjection(snapshot);
+				}));
+			}
+		};
+		task.setOnSucceeded(e -> {
+			if (run == projectionRun && task.getValue() == null)
+				projectionStatus.setText("No graded scores yet to project from.");
+		});
+		task.setOnFailed(e -> {
+			System.err.println("Grade projection failed: " + task.getException());
+			if (run == projectionRun)
+				projectionStatus.setText("Could not project the grade.");
+		});
+		projectionTask = task;
+		PROJECTOR.submit(task);
+	}
+
+	private void cancelProjection() {
+		projectionRun++;
+		if (projectionTask != null) {
+			projectionTask.cancel();
+			projectionTask = null;
+		}
+	}
+
+	/**
+	 * Builds the chart rows (one per GradeScale band) once; snapshots only update them.
+	 */
+	private void showProjectionRows() {
+		if (projectionBars != null)
+			return;
+		projectionStatus = new Label();
+		projectionStatus.setFont(Font.font("System", 12));
+		projectionBox.getChildren().add(projectionStatus);
+
+		int bands = GradeScale.bandCount();
+		projectionBars = new HBox[bands];
+		projectionChances = new Label[bands];
+		for (int band = 0; band < bands; band++) {
+			HBox entry = new HBox(5);
+			entry.setAlignment(Pos.CENTER_LEFT);
+
+			Label letter = new Label(band < bands - 1
+					? String.format("%s (%.0f+)", GradeScale.letter(band), GradeScale.threshold(band))
+					: GradeScale.letter(band));
+			letter.setPrefWidth(70);
+			letter.setFont(Font.font("System", 12));
+
+			HBox bar = new HBox();
+			bar.setStyle("-fx-background-color: " + GradeScale.color(band) + "; -fx-background-radius: 3;");
+			bar.setPrefHeight(12);
+			bar.setPrefWidth(0);
+
+			Label chance = new Label();
+			chance.setFont(Font.font("System", 12));
+
+			entry.getChildren().addAll(letter, bar, chance);
+			projectionBox.getChildren().add(entry);
+			projectionBars[band] = bar;
+			projectionChances[band] = chance;
+		}
+	}
+
+	/**
+	 * Bar = chance of ending in the band; text = chance of reaching at least its threshold.
+	 */
+	private void showProjection(GradeProjection.Snapshot snapshot) {
+		projectionStatus.setText(String.format("%,d of %,d trials, mean %.2f%%", snapshot.getTrials(),
+				snapshot.getTotalTrials(), snapshot.getMeanGrade()));
+		for (int band = 0; band < projectionBars.length; band++) {
+			projectionBars[band].setPrefWidth(snapshot.getBandProbability(band) * PROJECTION_BAR_WIDTH);
+			projectionChances[band].setText(String.format("%.1f%%", snapshot.getProbabilityAtLeast(band) * 100));
+		}
+	}
+
+	@FXML
+	private void handleBack(ActionEvent event) {
+		cancelProjection();
+		recalcDelay.stop();
+		pendingEdits.clear();
+		// Leaving without saving discards edits: drop the edited instance from the cache
+		DataManager.invalidateCourse(course.getOwnerUsername(), course.getId());
+		if (mainApp != null)
+			mainApp.showDashboardView();
+	}
+
+	@FXML
+	private void handleSaveChanges(ActionEvent event) {
+		// Apply anything still waiting in the debounce window before saving
+		flushPendingEdits();
+		try {
+			// Save only the edited scores; DataManager journals them next to the course file
+			DataManager.saveScoreChanges(course);
+			System.out.println("Grades saved successfully for " + course.getName());
+			cancelProjection();
+			if (mainApp != null)
+				mainApp.showDashboardView();
+		} catch (IOException e) {
+			System.err.println("Failed to save grades to file.");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Row model for the score list: either a group header or one item of a group.
+	 * Item rows hold the text currently typed into their fields, so edits survive
+	 * the row's cell being scrolled away and reused.
+	 */
+	private static final class ScoreRow {
+		final Course.EvaluationGroup group;
+		final int index; // -1 for a header row
+		final ScoreRow header; // The owning group's header (null for headers)
+		boolean collapsed; // Header rows only
+		String scoreText = "";
+		String maxText = "";
+
+		private ScoreRow(Course.EvaluationGroup group, int index, ScoreRow header) {
+			this.group = group;
+			this.index = index;
+			this.header = header;
+		}
+
+		static ScoreRow header(Course.EvaluationGroup group) {
+			return new ScoreRow(group, -1, null);
+		}
+
+		static ScoreRow item(Course.EvaluationGroup group, int index, ScoreRow header) {
+			return new ScoreRow(group, index, header);
+		}
+
+		boolean isHeader() {
+			return index < 0;
+		}
+	}
+
+	/**
+	 * Reusable list cell. Its nodes are created once; updateItem only rebinds them to
+	 * whichever row the cell currently shows.
+	 */
+	private final class ScoreCell extends ListCell<ScoreRow> {
+		private final Label headerLabel = new Label();
+		private final HBox itemBox = new HBox(120);
+		private final Label nameLabel = new Label();
+		private final TextField scoreField = new TextField();
+		private final TextField maxField = new TextField();
+		private boolean binding; // Suppresses listeners while updateItem sets the text
+
+		ScoreCell() {
+			headerLabel.setStyle("-fx-font-weight: bold; -fx-text-fill: #2c5282; -fx-font-size: 14px; -fx-cursor: hand;");
+			headerLabel.setOnMouseClicked(e -> {
+				if (getItem() != null && getItem().isHeader())
+					toggleGroup(getItem());
+			});
+
+			itemBox.setStyle(
+					"-fx-padding: 5 10 5 10; -fx-background-color: white; -fx-border-color: #e2e8f0; -fx-border-radius: 5;");
+			itemBox.setAlignment(Pos.CENTER_LEFT);
+			nameLabel.setPrefWidth(120);
+
+			// Score Input Field
+			scoreField.setPromptText("Score");
+			scoreField.setPrefWidth(60);
+
+			// Max Points Input Field
+			maxField.setPromptText("Max");
+			maxField.setPrefWidth(60);
+
+			itemBox.getChildren().addAll(nameLabel, scoreField, new Label("out of"), maxField);
+
+			// Listeners store the text on the row and queue it; the model update and grade
+			// recalculation run once per debounce window
+			scoreField.textProperty().addListener((obs, oldVal, newVal) -> {
+				ScoreRow row = getItem();
+				if (binding || row == null || row.isHeader())
+					return;
+				row.scoreText = newVal;
+				scoreField.setStyle(isValidNumber(newVal) ? "" : INVALID_FIELD_STYLE);
+				queueEdit(row);
+			});
+			maxField.textProperty().addListener((obs, oldVal, newVal) -> {
+				ScoreRow row = getItem();
+				if (binding || row == null || row.isHeader())
+					return;
+				row.maxText = newVal;
+				maxField.setStyle(isValidNumber(newVal) ? "" : INVALID_FIELD_STYLE);
+				queueEdit(row);
+			});
+		}
+
+		@Override
+		protected void updateItem(ScoreRow row, boolean empty) {
+			super.updateItem(row, empty);
+			setText(null);
+			if (empty || row == null) {
+				setGraphic(null);
+				return;
+			}
+
+			if (row.isHeader()) {
+				Course.EvaluationGroup group = row.group;
+				headerLabel.setText((row.collapsed ? "\u25B6 " : "\u25BC ") + group.getName() + " (Best "
+						+ group.getItemsToCount() + " of " + group.getTotalItems() + ") - " + group.getTotalWeight() + "%");
+				setGraphic(headerLabel);
+			} else {
+				binding = true;
+				nameLabel.setText(row.group.getItemName(row.index) + ":");
+				scoreField.setText(row.scoreText);
+				maxField.setText(row.maxText);
+				scoreField.setStyle(isValidNumber(row.scoreText) ? "" : INVALID_FIELD_STYLE);
+				maxField.setStyle(isValidNumber(row.maxText) ? "" : INVALID_FIELD_STYLE);
+				binding = false;
+				setGraphic(itemBox);
+			}
+		}
+	}
 }
\ No newline at end of file
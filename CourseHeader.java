@@ -0,0 +1,37 @@
+package application;
+
+/**
+ * A compact summary of a Course: just what the dashboard needs to render a course card.
+ * Headers are kept in each user's course index and refreshed on every DataManager.saveCourse,
+ * so the dashboard never has to deserialize the full evaluation groups and scores.
+ */
+public class CourseHeader {
+
+    private final String id;
+    private final String name;
+    private final String ownerUsername;
+    private final double currentGrade; // Cached result of Course.calculateCurrentGrade()
+    private final long version;        // Incremented on every save of the course
+
+    public CourseHeader(String id, String name, String ownerUsername, double currentGrade, long version) {
+        this.id = id;
+        this.name = name;
+        this.ownerUsername = ownerUsername;
+        this.currentGrade = currentGrade;
+        this.version = version;
+    }
+
+    /**
+     * Builds a header from a fully loaded Course, computing its current grade once.
+     */
+    public static CourseHeader fromCourse(Course course, long version) {
+        return new CourseHeader(course.getId(), course.getName(), course.getOwnerUsername(),
+                course.calculateCurrentGrade(), version);
+    }
+
+    public String getId() { return id; }
+    public String getName() { return name; }
+    public String getOwnerUsername() { return ownerUsername; }
+    public double getCurrentGrade() { return currentGrade; }
+    public long getVersion() { return version; }
+}
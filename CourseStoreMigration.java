@@ -0,0 +1,21 @@
+package application;
+
+/**
+ * Command-line tool that moves course files from the old flat layout
+ * (data/courses/[username]_[courseID].dat) into the sharded per-user layout
+ * used by DataManager. Safe to run more than once; already-moved files are not touched.
+ *
+ * The migration itself runs when DataManager is loaded (the application does the same
+ * at startup); this tool reports how many files that run moved.
+ *
+ * Run from the application's working directory: java application.CourseStoreMigration
+ */
+public class CourseStoreMigration {
+
+    public static void main(String[] args) {
+        // Loading DataManager already runs the migration, so report that run
+        int migrated = DataManager.getStartupMigratedCount();
+        long elapsed = DataManager.getStartupMigrationMillis();
+        System.out.println("Migrated " + migrated + " course file(s) in " + elapsed + " ms.");
+    }
+}
@@ -1,148 +1,292 @@
-package application;
-
-import javafx.fxml.FXML;
-import javafx.geometry.Insets;
-import javafx.scene.control.Label;
-import javafx.scene.input.MouseEvent;
-import javafx.scene.layout.VBox;
-import javafx.scene.layout.HBox;
-import javafx.scene.layout.Priority;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Circle;
-import javafx.event.ActionEvent;
-import java.util.List;
-
-public class DashboardController {
-
-	@FXML
-	private VBox courseListVBox;
-	@FXML
-	private Label welcomeLabel;
-
-	private Main mainApp;
-
-	/**
-	 * Sets the Main application reference and initiates data loading for the
-	 * logged-in user.
-	 */
-	public void setMainApp(Main mainApp) {
-		this.mainApp = mainApp;
-
-		// Personalize the dashboard with the username immediately after injection
-		if (mainApp.getCurrentUser() != null) {
-			welcomeLabel.setText("Welcome Back, " + mainApp.getCurrentUser().getUsername() + "!");
-			loadCourses();
-		}
-	}
-
-	/**
-	 * Loads the course data specific to the current user from the file system.
-	 */
-	private void loadCourses() {
-		courseListVBox.getChildren().clear();
-
-		// Load data from file system for the current user's username via DataManager
-		List<Course> courses = DataManager.loadCoursesForUser(mainApp.getCurrentUser().getUsername());
-
-		if (courses.isEmpty()) {
-			Label emptyLabel = new Label("No courses yet. Click 'Add Course' to start!");
-			emptyLabel.setStyle("-fx-text-fill: #718096; -fx-font-style: italic;");
-			courseListVBox.getChildren().add(emptyLabel);
-		}
-
-		for (Course course : courses) {
-			HBox courseCard = createCourseCard(course);
-			courseListVBox.getChildren().add(courseCard);
-		}
-	}
-
-	/**
-	 * Creates a styled, clickable HBox component (the "Course Card").
-	 */
-	private HBox createCourseCard(Course course) {
-		HBox card = new HBox();
-
-		card.setSpacing(15);
-		card.setPadding(new Insets(15));
-
-		card.setStyle("-fx-background-color: white; " + "-fx-border-radius: 8px; " + "-fx-background-radius: 8px; "
-				+ "-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.1), 10, 0, 0, 5);");
-
-		// Calculate the current grade using the complex model logic
-		double grade = course.calculateCurrentGrade();
-
-		// Indicator color based on the current grade
-		Circle indicator = new Circle(8);
-		Color color;
-		if (grade >= 93) {
-			color = Color.web("#2ECC71"); // A+ (Deep Green)
-		} else if (grade >= 90) {
-			color = Color.web("#48C06C"); // A (Strong Green)
-		} else if (grade >= 87) {
-			color = Color.web("#6CDE8B"); // A- (Medium Green)
-		} else if (grade >= 83) {
-			color = Color.web("#A0E88E"); // B+ (Lime Yellow)
-		} else if (grade >= 80) {
-			color = Color.web("#F4D03F"); // B (Golden Yellow)
-		} else if (grade >= 77) {
-			color = Color.web("#F7B26E"); // B- (Soft Orange)
-		} else if (grade >= 73) {
-			color = Color.web("#FA9F68"); // C+ (Warm Orange)
-		} else if (grade >= 70) {
-			color = Color.web("#F48B57"); // C (Dark Orange)
-		} else if (grade >= 67) {
-			color = Color.web("#E76E4B"); // C- (Rust/Soft Red)
-		} else if (grade >= 60) {
-			color = Color.web("#D14739"); // D (Bright Red)
-		} else {
-			color = Color.web("#C0392B"); // F (Deep Red)
-		}
-
-		indicator.setFill(color);
-		VBox details = new VBox();
-		Label nameLabel = new Label(course.getName());
-		nameLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
-		Label idLabel = new Label("Course ID: " + course.getId());
-		idLabel.setStyle("-fx-text-fill: #718096;");
-		details.getChildren().addAll(nameLabel, idLabel);
-
-		Label gradeLabel = new Label(String.format("%.2f%%", grade));
-		gradeLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-text-fill: #2c5282;");
-
-		card.getChildren().addAll(indicator, details, gradeLabel);
-		HBox.setHgrow(details, Priority.ALWAYS); // Pushes grade label to the right
-
-		// Attach click handler to switch to details view
-		card.setOnMouseClicked(event -> handleCourseClick(event, course));
-
-		// Hover effects
-		card.setOnMouseEntered(e -> card.setStyle(card.getStyle() + "-fx-cursor: hand; -fx-opacity: 0.9;"));
-		card.setOnMouseExited(e -> card.setStyle(card.getStyle().replace("-fx-cursor: hand; -fx-opacity: 0.9;", "")));
-
-		return card;
-	}
-
-	/**
-	 * Handles the click on a course card, triggering scene switch to Course
-	 * Details.
-	 */
-	private void handleCourseClick(MouseEvent event, Course course) {
-		if (mainApp != null) {
-			mainApp.switchToCourseDetailsScene(course);
-		}
-	}
-
-	// --- Button Handlers ---
-
-	@FXML
-	private void handleLogout(ActionEvent event) {
-		if (mainApp != null)
-			mainApp.switchToLoginScene();
-	}
-
-	@FXML
-	private void handleAddCourse(ActionEvent event) {
-		if (mainApp != null)
-			mainApp.switchToAddCourseScene();
-	}
+package application;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.fxml.FXML;
+import javafx.geometry.Insets;
+import javafx.scene.Node;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.Pagination;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.VBox;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
+import javafx.event.ActionEvent;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class DashboardController implements IViewController {
+
+	// Background pool for course loading, shared by all dashboard instances.
+	// Daemon threads so an in-flight load never keeps the application alive.
+	private static final ExecutorService LOADER = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "dashboard-loader");
+		t.setDaemon(true);
+		return t;
+	});
+
+	// Number of course cards shown per page of the list
+	private static final int COURSES_PER_PAGE = 50;
+
+	// Sort options offered in the sort box
+	private static final String SORT_BY_NAME = "Name";
+	private static final String SORT_BY_ID = "Course ID";
+	private static final String SORT_BY_GRADE = "Grade";
+
+	// Indicator colors, one per GradeScale band (see gradeColor)
+	private static final Color[] BAND_COLORS = new Color[GradeScale.bandCount()];
+	static {
+		for (int band = 0; band < BAND_COLORS.length; band++)
+			BAND_COLORS[band] = Color.web(GradeScale.color(band));
+	}
+
+	private static final String CARD_STYLE = "-fx-background-color: white; " + "-fx-border-radius: 8px; "
+			+ "-fx-background-radius: 8px; " + "-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.1), 10, 0, 0, 5);";
+	private static final String CARD_HOVER_STYLE = CARD_STYLE + "-fx-cursor: hand; -fx-opacity: 0.9;";
+
+	@FXML
+	private Pagination coursePagination;
+	@FXML
+	private ComboBox<String> sortComboBox;
+	@FXML
+	private Label welcomeLabel;
+
+	// Virtualized list showing the current page; only visible rows get card nodes
+	private final ListView<CourseHeader> courseListView = new ListView<>();
+
+	private Main mainApp;
+	private Task<List<CourseHeader>> loadingTask; // The in-flight course load, if any
+	private List<CourseHeader> courses = new ArrayList<>(); // All headers, in the current sort order
+
+	@FXML
+	private void initialize() {
+		courseListView.setCellFactory(list -> new CourseCardCell());
+		courseListView.setStyle("-fx-background-color: transparent; -fx-background: transparent;");
+		courseListView.setPlaceholder(placeholder("Loading courses..."));
+
+		sortComboBox.getItems().setAll(SORT_BY_NAME, SORT_BY_ID, SORT_BY_GRADE);
+		sortComboBox.setValue(SORT_BY_NAME);
+		sortComboBox.setOnAction(e -> sortAndShow());
+
+		coursePagination.setMaxPageIndicatorCount(7);
+		coursePagination.setPageFactory(this::showPage);
+	}
+
+	@Override
+	public void setMainApp(Main mainApp) {
+		this.mainApp = mainApp;
+	}
+
+	/**
+	 * Initiates data loading for the logged-in user. Called every time the dashboard
+	 * is shown, so returning from another view picks up added or re-graded courses.
+	 */
+	@Override
+	public void refresh() {
+		// Personalize the dashboard with the username immediately after injection
+		if (mainApp.getCurrentUser() != null) {
+			welcomeLabel.setText("Welcome Back, " + mainApp.getCurrentUser().getUsername() + "!");
+			loadCourses();
+		}
+	}
+
+	/**
+	 * Loads the course headers specific to the current user from the file system.
+	 * Disk I/O runs on a background thread; the list is filled once the headers are
+	 * in. Each header carries the grade cached at its last save, so sorting and
+	 * rendering never recompute grades, and full Course objects are only loaded when
+	 * a card is opened.
+	 */
+	private void loadCourses() {
+		cancelLoading();
+		courseListView.setPlaceholder(placeholder("Loading courses..."));
+		showCourses(new ArrayList<>());
+
+		String username = mainApp.getCurrentUser().getUsername();
+		Comparator<CourseHeader> order = comparatorFor(sortComboBox.getValue());
+		FlightEvents.DashboardLoad event = new FlightEvents.DashboardLoad();
+		event.username = username;
+		event.begin();
+
+		Task<List<CourseHeader>> task = new Task<>() {
+			@Override
+			protected List<CourseHeader> call() {
+				// Load only the compact headers (name, id, cached grade) via DataManager
+				List<CourseHeader> headers = new ArrayList<>(DataManager.loadCourseHeadersForUser(username));
+				headers.sort(order);
+				return headers;
+			}
+		};
+		task.setOnSucceeded(e -> {
+			courseListView.setPlaceholder(placeholder("No courses yet. Click 'Add Course' to start!"));
+			showCourses(task.getValue());
+			event.courses = task.getValue().size();
+			event.succeeded = true;
+			event.commit();
+		});
+		task.setOnFailed(e -> {
+			System.err.println("Failed to load courses: " + task.getException());
+			courseListView.setPlaceholder(placeholder("Could not load your courses."));
+			event.commit();
+		});
+
+		loadingTask = task;
+		LOADER.submit(task);
+	}
+
+	/**
+	 * Cancels the in-flight course load, if any. Called before navigating away so
+	 * late results are never shown on a dashboard that is no longer visible.
+	 */
+	private void cancelLoading() {
+		if (loadingTask != null) {
+			loadingTask.cancel();
+			loadingTask = null;
+		}
+	}
+
+	/**
+	 * Re-sorts the loaded headers by the selected key and returns to the first page.
+	 */
+	private void sortAndShow() {
+		List<CourseHeader> sorted = new ArrayList<>(courses);
+		sorted.sort(comparatorFor(sortComboBox.getValue()));
+		showCourses(sorted);
+	}
+
+	private static Comparator<CourseHeader> comparatorFor(String sortKey) {
+		if (SORT_BY_ID.equals(sortKey))
+			return Comparator.comparing(CourseHeader::getId, String.CASE_INSENSITIVE_ORDER);
+		if (SORT_BY_GRADE.equals(sortKey))
+			return Comparator.comparingDouble(CourseHeader::getCurrentGrade).reversed(); // Highest first
+		return Comparator.comparing(CourseHeader::getName, String.CASE_INSENSITIVE_ORDER);
+	}
+
+	/**
+	 * Replaces the shown courses and resets paging to the first page.
+	 */
+	private void showCourses(List<CourseHeader> sorted) {
+		courses = sorted;
+		int pages = Math.max(1, (courses.size() + COURSES_PER_PAGE - 1) / COURSES_PER_PAGE);
+		coursePagination.setPageCount(pages);
+		coursePagination.setCurrentPageIndex(0);
+		showPage(0);
+	}
+
+	/**
+	 * Page factory for the pagination control: points the shared list view at the
+	 * requested slice of the sorted headers.
+	 */
+	private Node showPage(int pageIndex) {
+		int from = Math.min(pageIndex * COURSES_PER_PAGE, courses.size());
+		int to = Math.min(from + COURSES_PER_PAGE, courses.size());
+		courseListView.getItems().setAll(courses.subList(from, to));
+		courseListView.scrollTo(0);
+		return courseListView;
+	}
+
+	private static Label placeholder(String text) {
+		Label label = new Label(text);
+		label.setStyle("-fx-text-fill: #718096; -fx-font-style: italic;");
+		return label;
+	}
+
+	/**
+	 * Indicator color based on the current grade.
+	 */
+	private static Color gradeColor(double grade) {
+		return BAND_COLORS[GradeScale.band(grade)];
+	}
+
+	/**
+	 * Handles the click on a course card, triggering scene switch to Course
+	 * Details.
+	 */
+	private void handleCourseClick(MouseEvent event, CourseHeader course) {
+		cancelLoading();
+		if (mainApp != null) {
+			mainApp.switchToCourseDetailsScene(course);
+		}
+	}
+
+	// --- Button Handlers ---
+
+	@FXML
+	private void handleLogout(ActionEvent event) {
+		cancelLoading();
+		if (mainApp != null)
+			mainApp.switchToLoginScene();
+	}
+
+	@FXML
+	private void handleAddCourse(ActionEvent event) {
+		cancelLoading();
+		if (mainApp != null)
+			mainApp.switchToAddCourseScene();
+	}
+
+	/**
+	 * A styled, clickable "Course Card". The card's nodes are built once per cell and
+	 * rebound to whichever course the cell shows as the list scrolls.
+	 */
+	private final class CourseCardCell extends ListCell<CourseHeader> {
+		private final HBox card = new HBox();
+		private final Circle indicator = new Circle(8);
+		private final Label nameLabel = new Label();
+		private final Label idLabel = new Label();
+		private final Label gradeLabel = new Label();
+
+		CourseCardCell() {
+			card.setSpacing(15);
+			card.setPadding(new Insets(15));
+			card.setStyle(CARD_STYLE);
+
+			VBox details = new VBox();
+			nameLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
+			idLabel.setStyle("-fx-text-fill: #718096;");
+			details.getChildren().addAll(nameLabel, idLabel);
+
+			gradeLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-text-fill: #2c5282;");
+
+			card.getChildren().addAll(indicator, details, gradeLabel);
+			HBox.setHgrow(details, Priority.ALWAYS); // Pushes grade label to the right
+
+			// Attach click handler to switch to details view
+			card.setOnMouseClicked(event -> {
+				if (getItem() != null)
+					handleCourseClick(event, getItem());
+			});
+
+			// Hover effects
+			card.setOnMouseEntered(e -> card.setStyle(CARD_HOVER_STYLE));
+			card.setOnMouseExited(e -> card.setStyle(CARD_STYLE));
+		}
+
+		@Override
+		protected void updateItem(CourseHeader course, boolean empty) {
+			super.updateItem(course, empty);
+			setText(null);
+			if (empty || course == null) {
+				setGraphic(null);
+				return;
+			}
+
+			// Grade cached in the header when the course was last saved
+			double grade = course.getCurrentGrade();
+			indicator.setFill(gradeColor(grade));
+			nameLabel.setText(course.getName());
+			idLabel.setText("Course ID: " + course.getId());
+			gradeLabel.setText(String.format("%.2f%%", grade));
+			card.setStyle(CARD_STYLE);
+			setGraphic(card);
+		}
+	}
 }
\ No newline at end of file
@@ -1,100 +1,893 @@
-package application;
-
-import java.io.*;
-import java.nio.file.*;
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- * Manages all file system interactions, including saving and loading User and Course objects.
- * Uses Java Serialization to write/read objects to/from the local disk.
- */
-public class DataManager {
-
-    private static final String DATA_DIR = "data";
-    private static final String USERS_DIR = DATA_DIR + File.separator + "users";
-    private static final String COURSES_DIR = DATA_DIR + File.separator + "courses";
-
-    // Static block runs once when the class is loaded to ensure data directories exist
-    static {
-        try {
-            // Creates the 'data/users' and 'data/courses' directories
-            Files.createDirectories(Paths.get(USERS_DIR));
-            Files.createDirectories(Paths.get(COURSES_DIR));
-        } catch (IOException e) {
-            System.err.println("Error initializing data directories: " + e.getMessage());
-        }
-    }
-
-    // --- User Management ---
-
-    /**
-     * Saves a User object to the file system (Serialization).
-     * The file name is based on the username (e.g., data/users/john.dat).
-     */
-    public static void saveUser(User user) throws IOException {
-        String filepath = USERS_DIR + File.separator + user.getUsername() + ".dat";
-        // ObjectOutputStream is used for serialization
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filepath))) {
-            oos.writeObject(user);
-        }
-    }
-
-    /**
-     * Loads a User object from the file system (Deserialization).
-     * Returns null if the user file does not exist.
-     */
-    public static User loadUser(String username) {
-        String filepath = USERS_DIR + File.separator + username + ".dat";
-        File file = new File(filepath);
-        if (!file.exists()) return null;
-
-        // ObjectInputStream is used for deserialization
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-            return (User) ois.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Error loading user " + username + ": " + e.getMessage());
-            return null;
-        }
-    }
-
-    // --- Course Management ---
-
-    /**
-     * Saves a Course object to the file system.
-     * The file name is formatted as [username]_[courseID].dat (e.g., data/courses/john_CS101.dat).
-     */
-    public static void saveCourse(Course course) throws IOException {
-        // Filename format: username_courseID.dat to ensure uniqueness per user
-        String filename = course.getOwnerUsername() + "_" + course.getId() + ".dat";
-        String filepath = COURSES_DIR + File.separator + filename;
-        
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filepath))) {
-            oos.writeObject(course);
-        }
-    }
-
-    /**
-     * Loads all Course objects associated with a specific username from the file system.
-     */
-    public static List<Course> loadCoursesForUser(String username) {
-        List<Course> userCourses = new ArrayList<>();
-        File folder = new File(COURSES_DIR);
-        File[] listOfFiles = folder.listFiles();
-
-        if (listOfFiles != null) {
-            for (File file : listOfFiles) {
-                // Filters files by username prefix and .dat extension
-                if (file.isFile() && file.getName().startsWith(username + "_") && file.getName().endsWith(".dat")) {
-                    try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-                        Course c = (Course) ois.readObject();
-                        userCourses.add(c);
-                    } catch (IOException | ClassNotFoundException e) {
-                        System.err.println("Error loading course file " + file.getName() + ": " + e.getMessage());
-                    }
-                }
-            }
-        }
-        return userCourses;
-    }
+package application;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Manages all file system interactions, including saving and loading User and Course objects.
+ * Users are stored with Java Serialization; courses use the compact binary CourseCodec format.
+ */
+public class DataManager {
+
+    // Root of all stored data; -Dpcgms.data.dir points it elsewhere (e.g. for benchmarks)
+    private static final String DATA_DIR = System.getProperty("pcgms.data.dir", "data");
+    private static final String USERS_DIR = DATA_DIR + File.separator + "users";
+    private static final String COURSES_DIR = DATA_DIR + File.separator + "courses";
+    private static final String COURSE_EXT = ".dat";
+    private static final String INDEX_FILE = "courses.idx";
+    private static final int INDEX_MAGIC = 0x50434849; // "PCHI": binary course-header index
+    private static final String JOURNAL_EXT = ".journal";
+
+    // Once a course's score journal grows past this size, the next save folds it into the course file
+    private static final long JOURNAL_FOLD_BYTES = Long.getLong("pcgms.journal.foldBytes", 64 * 1024);
+
+    // --- In-Memory Caches ---
+    // Bounded LRU caches in front of the course files and the per-user header indexes.
+    // Entries remember the file's last-modified time and are dropped if the file changed on disk.
+    // Declared before the static block, which already writes through them during migration.
+    private static final int CACHE_CAPACITY = Integer.getInteger("pcgms.cache.size", 256);
+
+    private static final AtomicLong cacheEvictions = new AtomicLong(); // Course cache only
+    private static final Map<String, CachedEntry<Course>> courseCache = new LruMap<>(CACHE_CAPACITY, cacheEvictions);
+    private static final Map<String, CachedEntry<List<CourseHeader>>> headerCache = new LruMap<>(CACHE_CAPACITY);
+
+    // Length of each journal as this process last replayed or appended it. Any other length
+    // means the file was touched elsewhere (or torn by a crash), so it is checked before appending.
+    private static final Map<String, Long> journalLengths = new LruMap<>(CACHE_CAPACITY);
+
+    // One lock per user directory, held while its index is read from disk, rebuilt or rewritten,
+    // so concurrent saves for one user cannot overwrite each other's index updates
+    private static final Map<String, Object> indexLocks = new ConcurrentHashMap<>();
+
+    // One lock per course file, held while the file or its journal is read, written, repaired,
+    // appended to or deleted, so two writers of one course cannot cut off each other's edits.
+    // Taken before the owner's index lock, never while holding it.
+    private static final Map<String, Object> courseLocks = new ConcurrentHashMap<>();
+
+    private static final AtomicLong cacheHits = new AtomicLong();
+    private static final AtomicLong cacheMisses = new AtomicLong();
+
+    // All file writes go through this: temp file + atomic rename, synced per -Dpcgms.durability
+    // (none | fsync | group_commit; default fsync)
+    private static final AtomicFileWriter fileWriter =
+            new AtomicFileWriter(AtomicFileWriter.Durability.fromName(System.getProperty("pcgms.durability")));
+
+    // --- Parallel Course Loading ---
+    // Courses of one user are read and decoded on this pool, at most -Dpcgms.io.parallelism at a
+    // time across the whole application (default: twice the cores, 2 to 16). 1 loads serially.
+    private static final int LOAD_PARALLELISM = Integer.getInteger("pcgms.io.parallelism",
+            Math.max(2, Math.min(16, Runtime.getRuntime().availableProcessors() * 2)));
+    private static final ExecutorService courseLoader = LOAD_PARALLELISM > 1 ? newLoaderPool() : null;
+
+    // --- Metrics ---
+    // Latency of the main persistence calls, and failed reads/writes (see Metrics)
+    private static final LatencyHistogram SAVE_USER_TIME = Metrics.timer("datamanager.saveUser");
+    private static final LatencyHistogram LOAD_USER_TIME = Metrics.timer("datamanager.loadUser");
+    private static final LatencyHistogram SAVE_COURSE_TIME = Metrics.timer("datamanager.saveCourse");
+    private static final LatencyHistogram LOAD_COURSES_TIME = Metrics.timer("datamanager.loadCoursesForUser");
+    private static final Metrics.Counter IO_ERRORS = Metrics.counter("datamanager.errors");
+
+    // Optional log-structured backend, selected with -Dpcgms.storage=log.
+    // When null (the default), users and courses are stored as individual files.
+    private static final SegmentLogStore logStore = openLogStoreIfEnabled();
+
+    // Result of the flat-layout migration run while the class loads (see CourseStoreMigration)
+    private static int startupMigrated;
+    private static long startupMigrationMillis;
+
+    // Static block runs once when the class is loaded to ensure data directories exist
+    static {
+        try {
+            // Creates the 'data/users' and 'data/courses' directories
+            Files.createDirectories(Paths.get(USERS_DIR));
+            Files.createDirectories(Paths.get(COURSES_DIR));
+        } catch (IOException e) {
+            System.err.println("Error initializing data directories: " + e.getMessage());
+        }
+        Metrics.gauge("datamanager.cache.hits", cacheHits::get);
+        Metrics.gauge("datamanager.cache.misses", cacheMisses::get);
+        Metrics.gauge("datamanager.cache.evictions", cacheEvictions::get);
+        Metrics.gauge("datamanager.cache.courses", DataManager::getCachedCourseCount);
+        Metrics.gauge("datamanager.writer.writes", fileWriter::getWriteCount);
+        Metrics.gauge("datamanager.writer.avgWriteMicros", fileWriter::getAverageWriteMicros);
+        Metrics.gauge("datamanager.writer.avgSyncBatch", fileWriter::getAverageSyncBatchSize);
+
+        // Moves any courses still stored in the old flat layout (a no-op once migrated)
+        if (logStore == null) {
+            long start = System.currentTimeMillis();
+            startupMigrated = migrateFlatCourseFiles();
+            startupMigrationMillis = System.currentTimeMillis() - start;
+            if (startupMigrated > 0) {
+                System.out.println("Migrated " + startupMigrated + " course file(s) to the per-user layout.");
+            }
+        }
+    }
+
+    /**
+     * Opens the segment log under data/log if it was requested; falls back to the
+     * file-per-object layout if it cannot be opened.
+     */
+    private static SegmentLogStore openLogStoreIfEnabled() {
+        if (!"log".equals(System.getProperty("pcgms.storage"))) return null;
+        try {
+            return SegmentLogStore.open(Paths.get(DATA_DIR, "log"), fileWriter);
+        } catch (IOException e) {
+            System.err.println("Could not open log store, using file storage: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // --- User Management ---
+
+    /**
+     * Saves a User object to the file system (Serialization).
+     * The file name is based on the username (e.g., data/users/john.dat).
+     */
+    public static void saveUser(User user) throws IOException {
+        long start = Metrics.startTimer();
+        try {
+            if (logStore != null) {
+                logStore.saveUser(user);
+                UserDirectory.onUserSaved(user);
+                return;
+            }
+
+            String filepath = USERS_DIR + File.separator + user.getUsername() + ".dat";
+            // ObjectOutputStream is used for serialization
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(user);
+            }
+            fileWriter.write(Paths.get(filepath), bytes.toByteArray());
+            UserDirectory.onUserSaved(user);
+        } catch (IOException e) {
+            IO_ERRORS.increment();
+            throw e;
+        } finally {
+            Metrics.stopTimer(SAVE_USER_TIME, start);
+        }
+    }
+
+    /**
+     * Loads a User object from the file system (Deserialization).
+     * Returns null if the user file does not exist.
+     */
+    public static User loadUser(String username) {
+        long start = Metrics.startTimer();
+        try {
+            if (logStore != null) {
+                try {
+                    return logStore.loadUser(username);
+                } catch (IOException e) {
+                    IO_ERRORS.increment();
+                    System.err.println("Error loading user " + username + ": " + e.getMessage());
+                    return null;
+                }
+            }
+
+            String filepath = USERS_DIR + File.separator + username + ".dat";
+            File file = new File(filepath);
+            if (!file.exists()) return null;
+
+            // ObjectInputStream is used for deserialization
+            FlightEvents.FileRead read = new FlightEvents.FileRead();
+            read.begin();
+            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
+                User user = (User) ois.readObject();
+                FlightEvents.commitFileRead(read, "user", file.toPath(), file.length());
+                return user;
+            } catch (IOException | ClassNotFoundException e) {
+                IO_ERRORS.increment();
+                System.err.println("Error loading user " + username + ": " + e.getMessage());
+                return null;
+            }
+        } finally {
+            Metrics.stopTimer(LOAD_USER_TIME, start);
+        }
+    }
+
+    /**
+     * Lists the names of all stored users. Only complete user files count: the temp files
+     * of in-progress writes ([name].dat.[n].tmp) are skipped.
+     */
+    public static List<String> listUsernames() {
+        if (logStore != null) return logStore.listUsernames();
+
+        List<String> usernames = new ArrayList<>();
+        File[] files = new File(USERS_DIR).listFiles((dir, name) -> name.endsWith(".dat"));
+        if (files == null) return usernames;
+        for (File file : files) {
+            String name = file.getName();
+            usernames.add(name.substring(0, name.length() - ".dat".length()));
+        }
+        return usernames;
+    }
+
+    // --- Course Management ---
+
+    /**
+     * Saves a Course object to the file system.
+     * Courses live in a per-user directory inside a hashed shard
+     * (e.g., data/courses/3f/john/CS101.dat), next to an index holding a CourseHeader per course.
+     * The header (name, cached grade, version) is refreshed on every save.
+     */
+    public static void saveCourse(Course course) throws IOException {
+        long start = Metrics.startTimer();
+        try {
+            if (logStore != null) {
+                logStore.saveCourse(course);
+                return;
+            }
+
+            File userDir = getUserCourseDir(course.getOwnerUsername());
+            Files.createDirectories(userDir.toPath());
+
+            File file = new File(userDir, course.getId() + COURSE_EXT);
+            synchronized (courseLock(file)) {
+                fileWriter.write(file.toPath(), CourseCodec.encode(course));
+
+                // The course file now contains every journaled edit, so the journal can go.
+                // If we crash before this, replaying it again is harmless (deltas are absolute).
+                File journal = new File(userDir, course.getId() + JOURNAL_EXT);
+                Files.deleteIfExists(journal.toPath());
+                rememberJournalLength(journal);
+                course.drainScoreDeltas();
+
+                // Write-through: the saved instance is what the next load should return
+                synchronized (courseCache) {
+                    courseCache.put(file.getPath(), new CachedEntry<>(course, file.lastModified()));
+                }
+                updateCourseIndex(userDir, course);
+            }
+        } catch (IOException e) {
+            IO_ERRORS.increment();
+            throw e;
+        } finally {
+            Metrics.stopTimer(SAVE_COURSE_TIME, start);
+        }
+    }
+
+    /**
+     * Saves only the scores edited since the course was loaded or last saved, by appending
+     * them to the course's journal ([courseID].journal). Much cheaper than saveCourse for
+     * a handful of edits. Falls back to a full save if the course has never been written,
+     * and folds the journal into the course file once it passes the size threshold.
+     */
+    public static void saveScoreChanges(Course course) throws IOException {
+        if (logStore != null) {
+            course.drainScoreDeltas();
+            logStore.saveCourse(course);
+            return;
+        }
+
+        File userDir = getUserCourseDir(course.getOwnerUsername());
+        File file = new File(userDir, course.getId() + COURSE_EXT);
+        // Under the course's lock from the length check to the fold, so no other writer
+        // can truncate, append to or delete the journal in between
+        synchronized (courseLock(file)) {
+            if (!file.exists()) {
+                saveCourse(course);
+                return;
+            }
+
+            List<ScoreDelta> deltas = course.drainScoreDeltas();
+            if (deltas.isEmpty()) return;
+
+            File journal = new File(userDir, course.getId() + JOURNAL_EXT);
+            try {
+                Long knownLength;
+                synchronized (journalLengths) {
+                    knownLength = journalLengths.get(journal.getPath());
+                }
+                if (knownLength == null || knownLength != journal.length()) {
+                    // Appending behind a damaged record would hide this save from every later replay
+                    ScoreJournal.repair(journal);
+                }
+                fileWriter.append(journal.toPath(), ScoreJournal.encode(deltas));
+                rememberJournalLength(journal);
+            } catch (IOException e) {
+                // A failed append can leave part of a record behind; a full save replaces the journal
+                System.err.println("Could not append to the journal of course " + course.getId() + ", saving in full: "
+                        + e.getMessage());
+                saveCourse(course);
+                return;
+            }
+            if (journal.length() > JOURNAL_FOLD_BYTES) {
+                saveCourse(course);
+                return;
+            }
+
+            // The course file is untouched, so the cached instance (with its new scores) stays valid
+            synchronized (courseCache) {
+                courseCache.put(file.getPath(), new CachedEntry<>(course, file.lastModified()));
+            }
+            updateCourseIndex(userDir, course);
+        }
+    }
+
+    /**
+     * Loads the lightweight headers of all courses owned by a user, in index order.
+     * Only the user's index file is read (or nothing, if it is cached and unchanged);
+     * no Course objects are deserialized.
+     */
+    public static List<CourseHeader> loadCourseHeadersForUser(String username) {
+        if (logStore != null) return logStore.loadCourseHeaders(username);
+
+        File userDir = getUserCourseDir(username);
+        if (!userDir.isDirectory()) return new ArrayList<>();
+        return readCourseIndex(userDir);
+    }
+
+    /**
+     * Loads a single, complete Course object. Returns null if it does not exist or cannot be read.
+     */
+    public static Course loadCourse(String username, String courseId) {
+        if (logStore != null) return loadLoggedCourse(username, courseId);
+        return loadCachedCourse(new File(getUserCourseDir(username), courseId + COURSE_EXT));
+    }
+
+    /**
+     * Loads all Course objects associated with a specific username from the file system.
+     * Only that user's directory is touched, so the cost grows with their own data only.
+     * Unreadable courses are logged and left out.
+     */
+    public static List<Course> loadCoursesForUser(String username) {
+        return loadCoursesForUser(username, null);
+    }
+
+    /**
+     * Loads all of a user's courses, reading and decoding them in parallel on the loader
+     * pool. The result is in index order regardless of which file finished first.
+     * A course that cannot be read does not stop the others: it is left out and recorded
+     * in failures by course ID (or logged, if failures is null).
+     */
+    public static List<Course> loadCoursesForUser(String username, Map<String, IOException> failures) {
+        long start = Metrics.startTimer();
+        try {
+            List<String> courseIds = listCourseIds(username);
+            Course[] loaded = new Course[courseIds.size()];
+            IOException[] errors = new IOException[courseIds.size()];
+            loadAll(username, courseIds, (i, course, error) -> {
+                loaded[i] = course;
+                errors[i] = error;
+            }).join();
+
+            List<Course> userCourses = new ArrayList<>(loaded.length);
+            for (int i = 0; i < loaded.length; i++) {
+                if (loaded[i] != null) {
+                    userCourses.add(loaded[i]);
+                } else if (failures != null) {
+                    failures.put(courseIds.get(i), errors[i]);
+                } else {
+                    System.err.println("Error loading course " + courseIds.get(i) + ": " + errors[i].getMessage());
+                }
+            }
+            return userCourses;
+        } finally {
+            Metrics.stopTimer(LOAD_COURSES_TIME, start);
+        }
+    }
+
+    /**
+     * Streaming variant of loadCoursesForUser: each course is handed to onCourse as soon
+     * as it is decoded (so in completion order, not index order), and each unreadable one
+     * to onFailure with its course ID. Callbacks run on loader threads but never
+     * concurrently. The returned future completes with the number of courses delivered
+     * once every course has been handled.
+     */
+    public static CompletableFuture<Integer> streamCoursesForUser(String username, Consumer<Course> onCourse,
+                                                                  BiConsumer<String, IOException> onFailure) {
+        List<String> courseIds = listCourseIds(username);
+        AtomicInteger delivered = new AtomicInteger();
+        Object callbackLock = new Object();
+        return loadAll(username, courseIds, (i, course, error) -> {
+            synchronized (callbackLock) {
+                if (course != null) {
+                    onCourse.accept(course);
+                    delivered.incrementAndGet();
+                } else {
+                    onFailure.accept(courseIds.get(i), error);
+                }
+            }
+        }).thenApply(done -> delivered.get());
+    }
+
+    /**
+     * One-shot migration of the old flat layout (data/courses/[username]_[courseID].dat)
+     * into the sharded per-user layout. Owner and ID are read from the Course itself,
+     * since usernames may contain '_'. Returns the number of courses moved.
+     */
+    public static int migrateFlatCourseFiles() {
+        File[] legacyFiles = new File(COURSES_DIR).listFiles(
+                f -> f.isFile() && f.getName().endsWith(COURSE_EXT));
+        if (legacyFiles == null) return 0;
+
+        int migrated = 0;
+        for (File file : legacyFiles) {
+            Course course = readCourseFile(file);
+            if (course == null) {
+                System.err.println("Skipping unreadable course file " + file.getName());
+                continue;
+            }
+
+            try {
+                File userDir = getUserCourseDir(course.getOwnerUsername());
+                Files.createDirectories(userDir.toPath());
+                Files.move(file.toPath(), new File(userDir, course.getId() + COURSE_EXT).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+                updateCourseIndex(userDir, course);
+                migrated++;
+            } catch (IOException e) {
+                System.err.println("Error migrating course file " + file.getName() + ": " + e.getMessage());
+            }
+        }
+        return migrated;
+    }
+
+    /**
+     * Number of course files moved by the migration run when this class was loaded.
+     */
+    public static int getStartupMigratedCount() {
+        return startupMigrated;
+    }
+
+    /**
+     * How long the migration run when this class was loaded took, in milliseconds.
+     */
+    public static long getStartupMigrationMillis() {
+        return startupMigrationMillis;
+    }
+
+    /**
+     * Reads a course from the log store. Each call decodes a fresh instance from the
+     * memory-mapped segment, so the course cache is not used in this mode.
+     */
+    private static Course loadLoggedCourse(String username, String courseId) {
+        try {
+            return logStore.loadCourse(username, courseId);
+        } catch (IOException e) {
+            System.err.println("Error loading course " + courseId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The lock DataManager holds while writing or loading this course. Callers that edit a
+     * loaded course and save it from several threads hold it across load, edit and save:
+     * a cache eviction can hand two threads different instances of one course, so the
+     * Course object itself is no lock.
+     */
+    public static Object courseLock(String username, String courseId) {
+        return courseLock(new File(getUserCourseDir(username), courseId + COURSE_EXT));
+    }
+
+    /**
+     * Drops a course from the in-memory cache so the next load re-reads it from disk.
+     * Used when in-memory edits to a loaded Course are discarded without saving.
+     */
+    public static void invalidateCourse(String username, String courseId) {
+        File file = new File(getUserCourseDir(username), courseId + COURSE_EXT);
+        synchronized (courseCache) {
+            courseCache.remove(file.getPath());
+        }
+    }
+
+    /**
+     * The writer used for all file saves; exposes save latency and group-commit statistics.
+     */
+    public static AtomicFileWriter getFileWriter() {
+        return fileWriter;
+    }
+
+    // --- Cache Statistics (course cache) ---
+
+    public static long getCacheHits() { return cacheHits.get(); }
+    public static long getCacheMisses() { return cacheMisses.get(); }
+    public static long getCacheEvictions() { return cacheEvictions.get(); }
+
+    public static int getCachedCourseCount() {
+        synchronized (courseCache) {
+            return courseCache.size();
+        }
+    }
+
+    /**
+     * Returns a course from the cache if its file is unchanged on disk, otherwise reads
+     * and caches it. Returns null if the file does not exist or cannot be read.
+     */
+    private static Course loadCachedCourse(File file) {
+        try {
+            return readThroughCache(file);
+        } catch (IOException e) {
+            System.err.println("Error loading course file " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Cache lookup for loadCachedCourse; returns null if the file does not exist and
+     * throws if it exists but cannot be read.
+     */
+    private static Course readThroughCache(File file) throws IOException {
+        long lastModified = file.lastModified(); // 0 if the file does not exist
+        if (lastModified == 0) return null;
+
+        String key = file.getPath();
+        synchronized (courseCache) {
+            CachedEntry<Course> entry = courseCache.get(key);
+            if (entry != null && entry.lastModified == lastModified) {
+                cacheHits.incrementAndGet();
+                return entry.value;
+            }
+        }
+
+        cacheMisses.incrementAndGet();
+        Course course = decodeCourseFile(file);
+        synchronized (courseCache) {
+            courseCache.put(key, new CachedEntry<>(course, lastModified));
+        }
+        return course;
+    }
+
+    /**
+     * Reads one course file, like decodeCourseFile, but returns null (and logs) if it
+     * cannot be read.
+     */
+    private static Course readCourseFile(File file) {
+        try {
+            return decodeCourseFile(file);
+        } catch (IOException e) {
+            System.err.println("Error loading course file " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Decodes one course file and replays its score journal, if any. Files still in the
+     * old Java Serialization format are rewritten in the CourseCodec format on first read.
+     * Damaged content is reported as an IOException too. Runs under the course's lock,
+     * since the replay may cut a damaged tail off the journal.
+     */
+    private static Course decodeCourseFile(File file) throws IOException {
+        synchronized (courseLock(file)) {
+            byte[] data = readCourseBytes(file);
+            Course course = decodeCourseBytes(file, data);
+            if (CourseCodec.isLegacyFormat(data)) {
+                upgradeCourseFile(file, course);
+            }
+
+            File journal = journalOf(file);
+            ScoreJournal.replay(journal, course);
+            rememberJournalLength(journal);
+            course.drainScoreDeltas(); // Freshly loaded: nothing is pending yet
+            return course;
+        }
+    }
+
+    /**
+     * Reads a course for its header while an index lock is held, where course locks must not
+     * be taken: the journal is only read, and a legacy file is left for its next load to upgrade.
+     * Returns null (and logs) if the course cannot be read.
+     */
+    private static Course peekCourseFile(File file) {
+        try {
+            Course course = decodeCourseBytes(file, readCourseBytes(file));
+            ScoreJournal.read(journalOf(file), course);
+            course.drainScoreDeltas();
+            return course;
+        } catch (IOException e) {
+            System.err.println("Error loading course file " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] readCourseBytes(File file) throws IOException {
+        FlightEvents.FileRead read = new FlightEvents.FileRead();
+        read.begin();
+        byte[] data = Files.readAllBytes(file.toPath());
+        FlightEvents.commitFileRead(read, "course", file.toPath(), data.length);
+        return data;
+    }
+
+    private static Course decodeCourseBytes(File file, byte[] data) throws IOException {
+        try {
+            return CourseCodec.decode(data);
+        } catch (RuntimeException e) {
+            throw new IOException("Damaged course file " + file.getName(), e);
+        }
+    }
+
+    private static File journalOf(File courseFile) {
+        String path = courseFile.getPath();
+        return new File(path.substring(0, path.length() - COURSE_EXT.length()) + JOURNAL_EXT);
+    }
+
+    private static void rememberJournalLength(File journal) {
+        long length = journal.length(); // 0 if there is no journal
+        synchronized (journalLengths) {
+            journalLengths.put(journal.getPath(), length);
+        }
+    }
+
+    // --- Parallel Loading Helpers ---
+
+    /**
+     * Receives the outcome of loading the course at an index: the course, or the error.
+     */
+    private interface LoadCallback {
+        void done(int index, Course course, IOException error);
+    }
+
+    private static ExecutorService newLoaderPool() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(LOAD_PARALLELISM, r -> {
+            Thread t = new Thread(r, "course-loader-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * The IDs of a user's courses, in index order.
+     */
+    private static List<String> listCourseIds(String username) {
+        List<CourseHeader> headers = loadCourseHeadersForUser(username);
+        List<String> ids = new ArrayList<>(headers.size());
+        for (CourseHeader header : headers) ids.add(header.getId());
+        return ids;
+    }
+
+    /**
+     * Loads every listed course on the loader pool and reports each outcome to the callback.
+     * A single course, or a serial configuration, is loaded on the calling thread.
+     */
+    private static CompletableFuture<Void> loadAll(String username, List<String> courseIds, LoadCallback callback) {
+        if (courseLoader == null || courseIds.size() <= 1) {
+            for (int i = 0; i < courseIds.size(); i++) loadOne(username, courseIds, i, callback);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[courseIds.size()];
+        for (int i = 0; i < courseIds.size(); i++) {
+            int index = i;
+            tasks[i] = CompletableFuture.runAsync(() -> loadOne(username, courseIds, index, callback), courseLoader);
+        }
+        return CompletableFuture.allOf(tasks);
+    }
+
+    private static void loadOne(String username, List<String> courseIds, int index, LoadCallback callback) {
+        String courseId = courseIds.get(index);
+        Course course = null;
+        IOException error = null;
+        try {
+            course = logStore != null
+                    ? logStore.loadCourse(username, courseId)
+                    : readThroughCache(new File(getUserCourseDir(username), courseId + COURSE_EXT));
+            if (course == null) error = new FileNotFoundException("Course " + courseId + " is listed but missing");
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new IOException("Damaged course " + courseId, e);
+        }
+        callback.done(index, course, error);
+    }
+
+    /**
+     * Rewrites a legacy course file in the current format. Failure is not fatal:
+     * the file simply stays in the old format and is upgraded on a later read.
+     */
+    private static void upgradeCourseFile(File file, Course course) {
+        try {
+            fileWriter.write(file.toPath(), CourseCodec.encode(course));
+        } catch (IOException e) {
+            System.err.println("Could not upgrade course file " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    // --- Course Storage Layout Helpers ---
+
+    /**
+     * Returns the directory holding one user's courses: data/courses/[shard]/[username].
+     * The two-hex-digit shard keeps any single directory from growing with the user count.
+     */
+    private static File getUserCourseDir(String username) {
+        String shard = String.format("%02x", username.hashCode() & 0xff);
+        return new File(COURSES_DIR + File.separator + shard, username);
+    }
+
+    private static Object indexLock(File userDir) {
+        return indexLocks.computeIfAbsent(userDir.getPath(), path -> new Object());
+    }
+
+    private static Object courseLock(File courseFile) {
+        return courseLocks.computeIfAbsent(courseFile.getPath(), path -> new Object());
+    }
+
+    /**
+     * Reads the course headers stored in a user's index file.
+     * If the index is missing or in an older format, it is rebuilt from the .dat files
+     * in that user's directory (a one-time cost per user).
+     */
+    private static List<CourseHeader> readCourseIndex(File userDir) {
+        File indexFile = new File(userDir, INDEX_FILE);
+        List<CourseHeader> cached = cachedCourseIndex(indexFile);
+        if (cached != null) return cached;
+
+        synchronized (indexLock(userDir)) {
+            // Another thread may have read or rewritten the index while we waited
+            cached = cachedCourseIndex(indexFile);
+            return cached != null ? cached : readCourseIndexFile(userDir, indexFile);
+        }
+    }
+
+    /**
+     * A copy of the cached headers if the index file is unchanged since they were cached, else null.
+     */
+    private static List<CourseHeader> cachedCourseIndex(File indexFile) {
+        long lastModified = indexFile.lastModified();
+        synchronized (headerCache) {
+            CachedEntry<List<CourseHeader>> entry = headerCache.get(indexFile.getPath());
+            if (entry != null && entry.lastModified == lastModified) {
+                return new ArrayList<>(entry.value);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads (or rebuilds) the index from disk and caches it; called with the user's index lock held.
+     */
+    private static List<CourseHeader> readCourseIndexFile(File userDir, File indexFile) {
+        long lastModified = indexFile.lastModified();
+        if (lastModified != 0) {
+            FlightEvents.FileRead read = new FlightEvents.FileRead();
+            read.begin();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+                if (in.readInt() == INDEX_MAGIC) {
+                    int count = in.readInt();
+                    List<CourseHeader> headers = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        String id = in.readUTF();
+                        String name = in.readUTF();
+                        String owner = in.readUTF();
+                        double grade = in.readDouble();
+                        long version = in.readLong();
+                        headers.add(new CourseHeader(id, name, owner, grade, version));
+                    }
+                    FlightEvents.commitFileRead(read, "index", indexFile.toPath(), indexFile.length());
+                    synchronized (headerCache) {
+                        headerCache.put(indexFile.getPath(), new CachedEntry<>(new ArrayList<>(headers), lastModified));
+                    }
+                    return headers;
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading course index in " + userDir + ": " + e.getMessage());
+            }
+        }
+        return rebuildCourseIndex(userDir);
+    }
+
+    /**
+     * Recreates a user's index by loading every course file in their directory once.
+     * Called with the user's index lock held.
+     */
+    private static List<CourseHeader> rebuildCourseIndex(File userDir) {
+        List<CourseHeader> headers = new ArrayList<>();
+        File[] files = userDir.listFiles(f -> f.isFile() && f.getName().endsWith(COURSE_EXT));
+        if (files != null) {
+            for (File file : files) {
+                Course c = peekCourseFile(file);
+                if (c != null) headers.add(CourseHeader.fromCourse(c, 1));
+            }
+        }
+        try {
+            writeCourseIndex(userDir, headers);
+        } catch (IOException e) {
+            System.err.println("Error writing course index in " + userDir + ": " + e.getMessage());
+        }
+        return headers;
+    }
+
+    /**
+     * Replaces (or appends) the header for a course in its owner's index and bumps its version.
+     * The read-modify-write runs under the user's index lock.
+     */
+    private static void updateCourseIndex(File userDir, Course course) throws IOException {
+        synchronized (indexLock(userDir)) {
+            List<CourseHeader> headers = readCourseIndex(userDir);
+            for (int i = 0; i < headers.size(); i++) {
+                CourseHeader old = headers.get(i);
+                if (old.getId().equals(course.getId())) {
+                    headers.set(i, CourseHeader.fromCourse(course, old.getVersion() + 1));
+                    writeCourseIndex(userDir, headers);
+                    return;
+                }
+            }
+            headers.add(CourseHeader.fromCourse(course, 1));
+            writeCourseIndex(userDir, headers);
+        }
+    }
+
+    /**
+     * Rewrites a user's index file. Like every write here it goes through the atomic
+     * writer, so readers never see a half-written list. Called with the user's index lock held.
+     */
+    private static void writeCourseIndex(File userDir, List<CourseHeader> headers) throws IOException {
+        Path indexPath = new File(userDir, INDEX_FILE).toPath();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + headers.size() * 48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(headers.size());
+            for (CourseHeader h : headers) {
+                out.writeUTF(h.getId());
+                out.writeUTF(h.getName());
+                out.writeUTF(h.getOwnerUsername());
+                out.writeDouble(h.getCurrentGrade());
+                out.writeLong(h.getVersion());
+            }
+        }
+        fileWriter.write(indexPath, bytes.toByteArray());
+
+        synchronized (headerCache) {
+            headerCache.put(indexPath.toFile().getPath(),
+                    new CachedEntry<>(new ArrayList<>(headers), indexPath.toFile().lastModified()));
+        }
+    }
+
+    // --- Cache Helpers ---
+
+    /**
+     * A cached value together with the last-modified time of the file it came from.
+     */
+    private static final class CachedEntry<T> {
+        final T value;
+        final long lastModified;
+
+        CachedEntry(T value, long lastModified) {
+            this.value = value;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Access-ordered LinkedHashMap that evicts the least recently used entry once full,
+     * counting evictions in the given counter if there is one.
+     * Not thread-safe on its own; callers synchronize on the map.
+     */
+    private static final class LruMap<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+        private final AtomicLong evictions;
+
+        LruMap(int capacity) {
+            this(capacity, null);
+        }
+
+        LruMap(int capacity, AtomicLong evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > capacity) {
+                if (evictions != null) evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package application;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+
+/**
+ * Custom JDK Flight Recorder events, so a slow dashboard or save can be broken down
+ * into disk, decoding, FXML and grade work in JDK Mission Control.
+ *
+ * The events cost next to nothing unless a recording is running. A recording can be
+ * started the usual way (-XX:StartFlightRecording, jcmd) or, with
+ * -Dpcgms.jfr.continuous=true, by the application itself: it then records
+ * continuously into a bounded buffer (-Dpcgms.jfr.maxAgeMinutes, default 10;
+ * -Dpcgms.jfr.maxSizeMB, default 64) that can be dumped on demand with Ctrl/Cmd+Shift+D,
+ * the "application:type=FlightRecorder" MBean, or jcmd [pid] JFR.dump name=pcgms.
+ */
+final class FlightEvents {
+
+    private static final String RECORDING_NAME = "pcgms";
+    private static final Path DUMP_DIR = Paths.get(System.getProperty("pcgms.jfr.dumpDir", "recordings"));
+
+    private static Recording continuous; // Guarded by FlightEvents.class
+
+    private FlightEvents() {
+    }
+
+    // --- Events ---
+
+    @Name("pcgms.FileRead")
+    @Label("File Read")
+    @Category({ "PCGMS", "Storage" })
+    @Description("A file read by DataManager")
+    static final class FileRead extends Event {
+        @Label("Kind") String kind; // user, course, journal or index
+        @Label("Path") String path;
+        @Label("Bytes") @DataAmount long bytes;
+    }
+
+    @Name("pcgms.FileWrite")
+    @Label("File Write")
+    @Category({ "PCGMS", "Storage" })
+    @Description("A file written by AtomicFileWriter, including its sync")
+    static final class FileWrite extends Event {
+        @Label("Kind") String kind; // replace or append
+        @Label("Path") String path;
+        @Label("Bytes") @DataAmount long bytes;
+        @Label("Durability") String durability;
+    }
+
+    @Name("pcgms.SceneLoad")
+    @Label("Scene Load Phase")
+    @Category({ "PCGMS", "UI" })
+    @Description("One phase of Main.loadScene: fxml-load, controller-injection or scene-show")
+    static final class SceneLoad extends Event {
+        @Label("View") String view;
+        @Label("Phase") String phase;
+    }
+
+    @Name("pcgms.DashboardLoad")
+    @Label("Dashboard Load")
+    @Category({ "PCGMS", "UI" })
+    @Description("DashboardController.loadCourses, from request until the list is filled")
+    static final class DashboardLoad extends Event {
+        @Label("User") String username;
+        @Label("Courses") int courses;
+        @Label("Succeeded") boolean succeeded;
+    }
+
+    @Name("pcgms.GradeRecalculation")
+    @Label("Grade Recalculation")
+    @Category({ "PCGMS", "Grades" })
+    @Description("Score edits applied and the grade recalculated in the course details view")
+    static final class GradeRecalculation extends Event {
+        @Label("Course") String courseId;
+        @Label("Edits") int edits;
+        @Label("Grade") double grade;
+    }
+
+    /**
+     * Starts a SceneLoad event; the caller commits it when the phase ends.
+     */
+    static SceneLoad beginSceneLoad(String view, String phase) {
+        SceneLoad event = new SceneLoad();
+        event.view = view;
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commits a FileRead event begun by the caller, if it is being recorded.
+     */
+    static void commitFileRead(FileRead event, String kind, Path path, long bytes) {
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.path = path.toString();
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    // --- Continuous Recording ---
+
+    /**
+     * Starts the continuous in-app recording if -Dpcgms.jfr.continuous=true, and
+     * publishes the dump operation over JMX. Safe to call more than once.
+     */
+    static synchronized void startContinuousRecordingIfRequested() {
+        if (continuous != null || !Boolean.getBoolean("pcgms.jfr.continuous")) return;
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName(RECORDING_NAME);
+            recording.setToDisk(true); // Bounded by age and size below, so this acts as a ring buffer
+            recording.setMaxAge(Duration.ofMinutes(Long.getLong("pcgms.jfr.maxAgeMinutes", 10)));
+            recording.setMaxSize(Long.getLong("pcgms.jfr.maxSizeMB", 64) * 1024 * 1024);
+            for (Class<? extends Event> type : List.of(FileRead.class, FileWrite.class, SceneLoad.class,
+                    DashboardLoad.class, GradeRecalculation.class)) {
+                recording.enable(type).withoutThreshold();
+            }
+            recording.start();
+            continuous = recording;
+
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new StandardMBean(new Control(), RecorderMXBean.class, true),
+                    new ObjectName("application:type=FlightRecorder"));
+            System.out.println("Flight recording '" + RECORDING_NAME + "' running; dump with Ctrl+Shift+D");
+        } catch (IOException | ParseException | javax.management.JMException | IllegalStateException e) {
+            System.err.println("Could not start flight recording: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the continuous recording's buffered data to recordings/pcgms-[time].jfr.
+     * Returns the file written, or null if no continuous recording is running.
+     */
+    static synchronized Path dump() {
+        if (continuous == null) return null;
+        try {
+            Files.createDirectories(DUMP_DIR);
+            Path file = DUMP_DIR.resolve(RECORDING_NAME + "-"
+                    + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".jfr");
+            continuous.dump(file);
+            System.out.println("Flight recording dumped to " + file.toAbsolutePath());
+            return file;
+        } catch (IOException e) {
+            System.err.println("Could not dump flight recording: " + e.getMessage());
+            return null;
+        }
+    }
+
+    static synchronized boolean isRecording() {
+        return continuous != null;
+    }
+
+    public interface RecorderMXBean {
+        String dump();
+    }
+
+    private static final class Control implements RecorderMXBean {
+        @Override
+        public String dump() {
+            Path file = FlightEvents.dump();
+            return file == null ? "No continuous recording is running" : file.toAbsolutePath().toString();
+        }
+    }
+}
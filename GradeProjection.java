@@ -0,0 +1,339 @@
+package application;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Monte Carlo projection of a course's final grade.
+ *
+ * Each trial gives every ungraded item a score drawn from the student's own history
+ * (their graded scores, resampled with a little Gaussian smoothing), then grades the
+ * course with the same Best-of-N math as EvaluationGroup. Over many trials this gives
+ * the chance of finishing in each GradeScale band.
+ *
+ * The course is compiled into flat primitive arrays when the projection is created (on
+ * the thread that owns the Course), so later edits do not affect a running projection. Trials run on the
+ * common fork-join pool; each fork-join task owns a SplittableRandom split from its
+ * parent and a scratch array reused across its trials, so a trial allocates nothing.
+ * Trials are run in rounds, and a Snapshot is published after each one so the view can
+ * show the distribution converging.
+ */
+public final class GradeProjection {
+
+	public static final int DEFAULT_TRIALS = Integer.getInteger("pcgms.projection.trials", 200_000);
+
+	// 1%-wide bins of the final grade; the last one also holds everything above 100%
+	public static final int HISTOGRAM_BINS = 101;
+
+	private static final int LEAF_TRIALS = 2048;
+	// Rounds start small so the first snapshot arrives quickly, then grow to this size
+	private static final int FIRST_ROUND_TRIALS = 4096;
+	private static final int MAX_ROUND_TRIALS = 65_536;
+	// Smoothing floor, so a history of one repeated score still gives some spread
+	private static final double MIN_BANDWIDTH = 0.02;
+
+	private static final LatencyHistogram RUN_TIME = Metrics.timer("projection.run");
+
+	// Compiled course: grade points that can no longer change, plus one entry per group
+	// that still has ungraded items. Each group's graded values sit ascending in 'graded'.
+	private final double fixedPoints;
+	private final double[] graded;
+	private final int[] gradedStart;
+	private final int[] gradedCount;
+	private final int[] ungradedCount;
+	private final int[] itemsToCount;
+	private final double[] weight;
+	private final int maxGroupSize;
+	private final int remainingItems;
+
+	/**
+	 * Compiles the course as it is now. Only the Best-of-N rule is simulated, so courses
+	 * with custom grading policies are rejected.
+	 */
+	public GradeProjection(Course course) {
+		if (course.usesCustomPolicies())
+			throw new IllegalArgumentException("Projection does not support custom grading policies");
+		int groups = 0, values = 0, maxSize = 0, remaining = 0;
+		double fixed = 0.0;
+		for (Course.EvaluationGroup group : course.getEvaluationGroups()) {
+			if (group.getItemsToCount() == 0 || group.getItemCount() == 0)
+				continue;
+			int ungraded = group.getUngradedCount();
+			if (ungraded == 0) {
+				fixed += group.calculateContribution() * 100;
+			} else {
+				groups++;
+				values += group.getItemCount() - ungraded;
+				maxSize = Math.max(maxSize, group.getItemCount());
+				remaining += ungraded;
+			}
+		}
+
+		fixedPoints = fixed;
+		graded = new double[values];
+		gradedStart = new int[groups];
+		gradedCount = new int[groups];
+		ungradedCount = new int[groups];
+		itemsToCount = new int[groups];
+		weight = new double[groups];
+		maxGroupSize = maxSize;
+		remainingItems = remaining;
+
+		int g = 0, offset = 0;
+		for (Course.EvaluationGroup group : course.getEvaluationGroups()) {
+			if (group.getItemsToCount() == 0 || group.getItemCount() == 0)
+				continue;
+			int ungraded = group.getUngradedCount();
+			if (ungraded == 0)
+				continue;
+			double[] sorted = group.getGradedSorted(ungraded);
+			System.arraycopy(sorted, 0, graded, offset, sorted.length);
+			gradedStart[g] = offset;
+			gradedCount[g] = sorted.length;
+			ungradedCount[g] = ungraded;
+			itemsToCount[g] = group.getItemsToCount();
+			weight[g] = group.getTotalWeight();
+			offset += sorted.length;
+			g++;
+		}
+	}
+
+	/**
+	 * Collects the graded normalized scores of the given courses, the student's history
+	 * for the score model.
+	 */
+	public static double[] scoreHistory(Iterable<Course> courses) {
+		int count = 0;
+		for (Course course : courses) {
+			for (Course.EvaluationGroup group : course.getEvaluationGroups())
+				count += group.getItemCount() - group.getUngradedCount();
+		}
+
+		double[] scores = new double[count];
+		int n = 0;
+		for (Course course : courses) {
+			for (Course.EvaluationGroup group : course.getEvaluationGroups()) {
+				for (int i = 0; i < group.getItemCount(); i++) {
+					if (group.isGraded(i))
+						scores[n++] = group.getNormalizedScore(i);
+				}
+			}
+		}
+		return scores;
+	}
+
+	public int getRemainingItems() {
+		return remainingItems;
+	}
+
+	/**
+	 * Runs the trials on the calling thread plus the common fork-join pool, passing a
+	 * snapshot to onProgress (if not null) after each round. Stops early, returning the
+	 * last snapshot, if the calling thread is interrupted. The history holds the
+	 * student's past normalized scores (1.0 = 100%) and must not be empty; see scoreHistory.
+	 */
+	public Snapshot run(double[] history, int trials, long seed, Consumer<Snapshot> onProgress) {
+		if (history.length == 0)
+			throw new IllegalArgumentException("No score history to project from");
+
+		long start = Metrics.startTimer();
+		ScoreModel model = new ScoreModel(history);
+		SplittableRandom random = new SplittableRandom(seed);
+		Tally total = new Tally();
+		int done = 0;
+		int round = FIRST_ROUND_TRIALS;
+		Snapshot snapshot = new Snapshot(total, 0, trials);
+
+		while (done < trials && !Thread.currentThread().isInterrupted()) {
+			int size = Math.min(round, trials - done);
+			total.merge(new TrialTask(this, model, size, random.split()).invoke());
+			done += size;
+			round = Math.min(round * 2, MAX_ROUND_TRIALS);
+
+			snapshot = new Snapshot(total, done, trials);
+			if (onProgress != null)
+				onProgress.accept(snapshot);
+		}
+		Metrics.stopTimer(RUN_TIME, start);
+		return snapshot;
+	}
+
+	/**
+	 * Runs trials into a tally: the final grade histogram, the per-band counts and the sum
+	 * of grades. Allocates only the scratch array, once per call.
+	 */
+	private void simulate(ScoreModel model, int trials, SplittableRandom random, Tally tally) {
+		double[] scratch = new double[maxGroupSize];
+		for (int t = 0; t < trials; t++) {
+			double grade = fixedPoints;
+			for (int g = 0; g < weight.length; g++) {
+				int n = gradedCount[g];
+				int total = n + ungradedCount[g];
+				System.arraycopy(graded, gradedStart[g], scratch, 0, n);
+				for (int i = n; i < total; i++)
+					scratch[i] = model.sample(random);
+				Arrays.sort(scratch, 0, total);
+				grade += Course.EvaluationGroup.bestOfContribution(scratch, total, itemsToCount[g], weight[g]) * 100;
+			}
+			tally.record(grade);
+		}
+	}
+
+	/**
+	 * Draws scores for ungraded items from the student's history: a resampled past score
+	 * plus Gaussian noise (Silverman's rule-of-thumb bandwidth), kept between 0 and the
+	 * best score in the history (or 100%, if higher).
+	 */
+	private static final class ScoreModel {
+		private final double[] history;
+		private final double bandwidth;
+		private final double maxScore;
+
+		ScoreModel(double[] history) {
+			this.history = history.clone();
+
+			double mean = 0.0, max = 1.0;
+			for (double value : this.history) {
+				mean += value;
+				max = Math.max(max, value);
+			}
+			mean /= this.history.length;
+			double variance = 0.0;
+			for (double value : this.history)
+				variance += (value - mean) * (value - mean);
+			double deviation = Math.sqrt(variance / this.history.length);
+
+			this.bandwidth = Math.max(MIN_BANDWIDTH, 1.06 * deviation * Math.pow(this.history.length, -0.2));
+			this.maxScore = max;
+		}
+
+		double sample(SplittableRandom random) {
+			double value = history[random.nextInt(history.length)] + bandwidth * random.nextGaussian();
+			return value < 0.0 ? 0.0 : Math.min(value, maxScore);
+		}
+	}
+
+	/**
+	 * Splits a round of trials in halves down to LEAF_TRIALS; each half gets its own
+	 * random generator, split off before forking.
+	 */
+	private static final class TrialTask extends RecursiveTask<Tally> {
+		private static final long serialVersionUID = 1L;
+
+		private final GradeProjection projection;
+		private final ScoreModel model;
+		private final int trials;
+		private final SplittableRandom random;
+
+		TrialTask(GradeProjection projection, ScoreModel model, int trials, SplittableRandom random) {
+			this.projection = projection;
+			this.model = model;
+			this.trials = trials;
+			this.random = random;
+		}
+
+		@Override
+		protected Tally compute() {
+			if (trials <= LEAF_TRIALS) {
+				Tally tally = new Tally();
+				projection.simulate(model, trials, random, tally);
+				return tally;
+			}
+			int half = trials / 2;
+			TrialTask left = new TrialTask(projection, model, half, random.split());
+			left.fork();
+			Tally tally = new TrialTask(projection, model, trials - half, random).compute();
+			tally.merge(left.join());
+			return tally;
+		}
+	}
+
+	/**
+	 * Counts gathered by one task, merged up the fork-join tree.
+	 */
+	private static final class Tally {
+		final long[] histogram = new long[HISTOGRAM_BINS];
+		final long[] bands = new long[GradeScale.bandCount()];
+		double gradeSum;
+
+		void record(double grade) {
+			int bin = (int) grade;
+			histogram[bin < 0 ? 0 : Math.min(bin, HISTOGRAM_BINS - 1)]++;
+			bands[GradeScale.band(grade)]++;
+			gradeSum += grade;
+		}
+
+		void merge(Tally other) {
+			for (int i = 0; i < histogram.length; i++)
+				histogram[i] += other.histogram[i];
+			for (int i = 0; i < bands.length; i++)
+				bands[i] += other.bands[i];
+			gradeSum += other.gradeSum;
+		}
+	}
+
+	/**
+	 * The projection after some number of trials. Immutable, so it can be handed to the
+	 * UI thread while the run continues.
+	 */
+	public static final class Snapshot {
+		private final long[] histogram;
+		private final long[] bands;
+		private final double mean;
+		private final int trials;
+		private final int totalTrials;
+
+		private Snapshot(Tally tally, int trials, int totalTrials) {
+			this.histogram = tally.histogram.clone();
+			this.bands = tally.bands.clone();
+			this.mean = trials == 0 ? 0.0 : tally.gradeSum / trials;
+			this.trials = trials;
+			this.totalTrials = totalTrials;
+		}
+
+		public int getTrials() {
+			return trials;
+		}
+
+		public int getTotalTrials() {
+			return totalTrials;
+		}
+
+		public boolean isComplete() {
+			return trials >= totalTrials;
+		}
+
+		public double getMeanGrade() {
+			return mean;
+		}
+
+		/**
+		 * Fraction of trials whose final grade fell in [bin, bin + 1) percent; the last
+		 * bin also counts grades above 100%.
+		 */
+		public double getHistogramFraction(int bin) {
+			return trials == 0 ? 0.0 : (double) histogram[bin] / trials;
+		}
+
+		/**
+		 * Probability of finishing in the given GradeScale band.
+		 */
+		public double getBandProbability(int band) {
+			return trials == 0 ? 0.0 : (double) bands[band] / trials;
+		}
+
+		/**
+		 * Probability of finishing at or above the band's threshold.
+		 */
+		public double getProbabilityAtLeast(int band) {
+			if (trials == 0)
+				return 0.0;
+			long count = 0;
+			for (int b = 0; b <= band; b++)
+				count += bands[b];
+			return (double) count / trials;
+		}
+	}
+}
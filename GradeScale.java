@@ -0,0 +1,64 @@
+package application;
+
+/**
+ * The letter-grade scale shared by the views and the grade projection: bands from the
+ * highest down, each with its lower threshold (in percent), letter and display color.
+ * Anything below the last threshold is the failing band.
+ */
+public final class GradeScale {
+
+	private static final double[] THRESHOLDS = { 93, 90, 87, 83, 80, 77, 73, 70, 67, 60 };
+	private static final String[] LETTERS = { "A+", "A", "A-", "B+", "B", "B-", "C+", "C", "C-", "D", "F" };
+	private static final String[] COLORS = {
+			"#2ECC71", // A+ (Deep Green)
+			"#48C06C", // A (Strong Green)
+			"#6CDE8B", // A- (Medium Green)
+			"#A0E88E", // B+ (Lime Yellow)
+			"#F4D03F", // B (Golden Yellow)
+			"#F7B26E", // B- (Soft Orange)
+			"#FA9F68", // C+ (Warm Orange)
+			"#F48B57", // C (Dark Orange)
+			"#E76E4B", // C- (Rust/Soft Red)
+			"#D14739", // D (Bright Red)
+			"#C0392B", // F (Deep Red)
+	};
+
+	private GradeScale() {
+	}
+
+	/**
+	 * Number of bands, the failing band included (it is the last one).
+	 */
+	public static int bandCount() {
+		return LETTERS.length;
+	}
+
+	/**
+	 * Index of the band a grade falls in: 0 for the top band, bandCount() - 1 for failing.
+	 */
+	public static int band(double grade) {
+		for (int band = 0; band < THRESHOLDS.length; band++) {
+			if (grade >= THRESHOLDS[band])
+				return band;
+		}
+		return THRESHOLDS.length;
+	}
+
+	/**
+	 * Lowest grade in the band; 0 for the failing band.
+	 */
+	public static double threshold(int band) {
+		return band < THRESHOLDS.length ? THRESHOLDS[band] : 0.0;
+	}
+
+	public static String letter(int band) {
+		return LETTERS[band];
+	}
+
+	/**
+	 * The band's color as a CSS/web color string.
+	 */
+	public static String color(int band) {
+		return COLORS[band];
+	}
+}
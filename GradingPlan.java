@@ -0,0 +1,405 @@
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A course's grading policies (see GradingPolicy) compiled into flat per-group arrays,
+ * used by Course.calculateCurrentGrade once any group has a non-default policy.
+ *
+ * Evaluation works on the group's own incrementally sorted scores (the same state the
+ * Best-of-N rule uses), so no per-call sorting or allocation is needed:
+ *   - the best 'keep' values are a range at the top of the sorted array, found with a
+ *     binary search where ungraded items count as something other than 1.0; with equal
+ *     weights that range sum is all the work, as for Best-of-N
+ *   - per-item weights take one extra pass over the items, counting those above the
+ *     cut-off value and the lightest of those at it (see weightedAverage)
+ *   - a replacement adds the difference between the source group's average and the
+ *     lowest counted item, and the bonus cap clamps the result
+ * Each group's points are cached against the modification counts of the group (and of
+ * its replacement source), so after an edit only the edited group and the groups that
+ * take replacements from it are recomputed. Groups with the default policy keep using
+ * EvaluationGroup.calculateContribution.
+ *
+ * Like Course, a plan is not thread-safe.
+ */
+final class GradingPlan {
+
+	private static final int NO_WEIGHTS = -1;
+	private static final int NO_SOURCE = -1;
+
+	// Flattened policies, one entry per group
+	private final GradingPolicy[] compiledFrom;
+	private final boolean[] custom;
+	private final int[] dropLowest;
+	private final int[] weightStart; // Offset into itemWeights, or NO_WEIGHTS
+	private final double[] itemWeights;
+	private final double[] bonusCap;
+	private final int[] source; // Replacement source group, or NO_SOURCE
+	private final GradingPolicy.Ungraded[] ungraded;
+
+	// Scratch for evaluation: selectBest's results, and the weights of items tied at the cut-off
+	private double selectedSum, selectedLowest;
+	private double[] tieWeights = new double[0];
+
+	// Cached points (percent) and the modification counts they were computed at
+	private final double[] cachedPoints;
+	private final long[] cachedMod;
+	private final long[] cachedSourceMod;
+
+	/**
+	 * Compiles the groups' current policies. Replacement sources are looked up by group
+	 * name; unknown names and self-references are reported and ignored.
+	 */
+	GradingPlan(List<Course.EvaluationGroup> groups) {
+		this(groups, true);
+	}
+
+	private GradingPlan(List<Course.EvaluationGroup> groups, boolean resolveReplacements) {
+		int count = groups.size();
+		compiledFrom = new GradingPolicy[count];
+		custom = new boolean[count];
+		dropLowest = new int[count];
+		weightStart = new int[count];
+		bonusCap = new double[count];
+		source = new int[count];
+		ungraded = new GradingPolicy.Ungraded[count];
+		cachedPoints = new double[count];
+		cachedMod = new long[count];
+		cachedSourceMod = new long[count];
+
+		int weightCount = 0;
+		for (Course.EvaluationGroup group : groups)
+			weightCount += group.getPolicy().getItemWeightCount();
+		itemWeights = new double[weightCount];
+
+		int offset = 0;
+		for (int g = 0; g < count; g++) {
+			Course.EvaluationGroup group = groups.get(g);
+			GradingPolicy policy = group.getPolicy();
+			compiledFrom[g] = policy;
+			custom[g] = !policy.isDefault();
+			dropLowest[g] = policy.getDropLowest();
+			bonusCap[g] = policy.getBonusCap();
+			ungraded[g] = policy.getUngraded();
+			cachedMod[g] = -1;
+
+			if (policy.hasItemWeights()) {
+				weightStart[g] = offset;
+				for (int i = 0; i < policy.getItemWeightCount(); i++)
+					itemWeights[offset++] = policy.getItemWeight(i);
+			} else {
+				weightStart[g] = NO_WEIGHTS;
+			}
+
+			source[g] = NO_SOURCE;
+			if (resolveReplacements && policy.getReplacedBy() != null) {
+				for (int s = 0; s < count; s++) {
+					if (s != g && groups.get(s).getName().equals(policy.getReplacedBy()))
+						source[g] = s;
+				}
+				if (source[g] == NO_SOURCE)
+					System.err.println("Grading policy of '" + group.getName() + "': no other group named '"
+							+ policy.getReplacedBy() + "' to take a replacement from; ignored.");
+			}
+		}
+	}
+
+	/**
+	 * A plan for one group on its own, as EvaluationGroup.calculateContribution sees it:
+	 * replacements need the other groups of the course, so they are left out.
+	 */
+	static GradingPlan standalone(Course.EvaluationGroup group) {
+		return new GradingPlan(List.of(group), false);
+	}
+
+	/**
+	 * True if the plan was compiled from exactly these groups' current policies.
+	 */
+	boolean isCompiledFor(List<Course.EvaluationGroup> groups) {
+		if (groups.size() != compiledFrom.length)
+			return false;
+		for (int g = 0; g < compiledFrom.length; g++) {
+			if (groups.get(g).getPolicy() != compiledFrom[g])
+				return false;
+		}
+		return true;
+	}
+
+	// --- Evaluation ---
+
+	/**
+	 * The course grade (percent) under the compiled policies.
+	 */
+	double evaluate(List<Course.EvaluationGroup> groups) {
+		double grade = 0.0;
+		for (int g = 0; g < custom.length; g++) {
+			Course.EvaluationGroup group = groups.get(g);
+			if (!custom[g]) {
+				grade += group.calculateContribution() * 100;
+				continue;
+			}
+
+			long mod = group.getModCount();
+			long sourceMod = source[g] == NO_SOURCE ? 0 : groups.get(source[g]).getModCount();
+			if (cachedMod[g] != mod || cachedSourceMod[g] != sourceMod) {
+				double replacement = source[g] == NO_SOURCE ? Double.NaN
+						: average(source[g], groups.get(source[g]), Double.NaN, Double.NaN);
+				cachedPoints[g] = average(g, group, Double.NaN, replacement) * group.getTotalWeight();
+				cachedMod[g] = mod;
+				cachedSourceMod[g] = sourceMod;
+			}
+			grade += cachedPoints[g];
+		}
+		return grade;
+	}
+
+	/**
+	 * The course grade (percent) with every ungraded item at the given normalized score
+	 * instead of its policy's assumption, filling in each group's points if pointsOut is
+	 * not null. Uncached; used by RequiredScore.
+	 */
+	double evaluate(List<Course.EvaluationGroup> groups, double ungradedScore, double[] pointsOut) {
+		double grade = 0.0;
+		for (int g = 0; g < custom.length; g++) {
+			double replacement = source[g] == NO_SOURCE ? Double.NaN
+					: average(source[g], groups.get(source[g]), ungradedScore, Double.NaN);
+			double points = average(g, groups.get(g), ungradedScore, replacement) * groups.get(g).getTotalWeight();
+			if (pointsOut != null)
+				pointsOut[g] = points;
+			grade += points;
+		}
+		return grade;
+	}
+
+	/**
+	 * Group g's own contribution (0..weight/100, like calculateContribution).
+	 */
+	double contribution(int g, Course.EvaluationGroup group) {
+		return average(g, group, Double.NaN, Double.NaN) * (group.getTotalWeight() / 100.0);
+	}
+
+	/**
+	 * Group g's average (normalized, after policy) with ungraded items at ungradedScore
+	 * (NaN = the policy's assumption) and the lowest counted item replaced by replacement
+	 * when that is higher (NaN = no replacement).
+	 */
+	private double average(int g, Course.EvaluationGroup group, double ungradedScore, double replacement) {
+		int n = group.getItemCount();
+		int keep = group.getItemsToCount();
+		if (dropLowest[g] > 0)
+			keep = Math.min(keep, Math.max(0, n - dropLowest[g]));
+		if (keep == 0 || n == 0)
+			return 0.0;
+
+		// Ungraded items sit in the sorted array as 1.0 placeholders
+		double[] sorted = group.sortedNormalizedScores();
+		int ungradedItems = group.getUngradedCount();
+		double assumed = Double.isNaN(ungradedScore) ? ungradedValue(g, group, ungradedItems) : ungradedScore;
+		int taken = Math.min(keep, n);
+		double average;
+		if (weightStart[g] != NO_WEIGHTS && (ungradedItems == 0 || assumed == 1.0)) {
+			// The counted items are the top range, in the weighted order
+			average = weightedTop(group.sortedItemWeights(), sorted, n - taken, n, replacement) * taken / keep;
+			return Math.min(average, bonusCap[g]);
+		}
+		selectBest(sorted, n, ungradedItems, assumed, taken);
+		double last = selectedLowest;
+
+		if (weightStart[g] == NO_WEIGHTS) {
+			double sum = selectedSum;
+			if (replacement > last) // False for NaN
+				sum += replacement - last;
+			average = sum / keep;
+		} else {
+			average = weightedAverage(g, group, assumed, last, taken, replacement) * taken / keep;
+		}
+		return Math.min(average, bonusCap[g]);
+	}
+
+	/**
+	 * Finds the best 'taken' values among the graded items plus ungradedItems copies of
+	 * assumed, leaving their sum in selectedSum and the lowest of them in selectedLowest.
+	 * Works on ranges of the sorted array, so it costs what the Best-of-N sum costs: when
+	 * ungraded items count as 1.0 the placeholders already sit where they belong and this
+	 * is the Best-of-N selection itself; otherwise a binary search finds where the assumed
+	 * value falls among the graded values.
+	 */
+	private void selectBest(double[] sorted, int n, int ungradedItems, double assumed, int taken) {
+		if (ungradedItems == 0 || assumed == 1.0) {
+			selectedSum = sum(sorted, n - taken, n);
+			selectedLowest = sorted[n - taken];
+			return;
+		}
+
+		// Graded values above the assumed one come first, then the assumed copies, then the rest
+		int above = n - upperBound(sorted, n, assumed) - (assumed < 1.0 ? ungradedItems : 0);
+		if (taken <= above) {
+			selectGraded(sorted, n, ungradedItems, taken);
+		} else if (taken - above <= ungradedItems) {
+			selectGraded(sorted, n, ungradedItems, above);
+			selectedSum += (taken - above) * assumed;
+			selectedLowest = assumed;
+		} else {
+			selectGraded(sorted, n, ungradedItems, taken - ungradedItems);
+			selectedSum += ungradedItems * assumed;
+		}
+	}
+
+	/**
+	 * The best 'count' graded values, as for selectBest. Values above 1.0 (extra credit)
+	 * are all graded; below them, the top of the array holds the placeholders among the
+	 * graded 1.0s, so taking 'count' more entries and subtracting the placeholders gives
+	 * the graded values.
+	 */
+	private void selectGraded(double[] sorted, int n, int ungradedItems, int count) {
+		if (count == 0) {
+			selectedSum = 0.0;
+			selectedLowest = Double.POSITIVE_INFINITY;
+			return;
+		}
+		if (count <= n - upperBound(sorted, n, 1.0)) {
+			selectedSum = sum(sorted, n - count, n);
+			selectedLowest = sorted[n - count];
+		} else {
+			int from = n - count - ungradedItems;
+			selectedSum = sum(sorted, from, n) - ungradedItems;
+			selectedLowest = sorted[from];
+		}
+	}
+
+	/**
+	 * The weighted average of the counted items when they are the top entries [from, n) of
+	 * the group's sorted state, as they are whenever ungraded items count as 1.0. Equal
+	 * scores are ordered heaviest first there, so the entries taken at the cut-off are the
+	 * lightest, and sortedWeights[from] is the heaviest of them (see weightedAverage for
+	 * the tie rule).
+	 */
+	private static double weightedTop(double[] sortedWeights, double[] sorted, int from, int n, double replacement) {
+		double w0 = 0.0, w1 = 0.0, w2 = 0.0, w3 = 0.0;
+		double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+		int i = from;
+		for (; i + 3 < n; i += 4) {
+			w0 += sortedWeights[i];
+			s0 += sortedWeights[i] * sorted[i];
+			w1 += sortedWeights[i + 1];
+			s1 += sortedWeights[i + 1] * sorted[i + 1];
+			w2 += sortedWeights[i + 2];
+			s2 += sortedWeights[i + 2] * sorted[i + 2];
+			w3 += sortedWeights[i + 3];
+			s3 += sortedWeights[i + 3] * sorted[i + 3];
+		}
+		for (; i < n; i++) {
+			w0 += sortedWeights[i];
+			s0 += sortedWeights[i] * sorted[i];
+		}
+		double weightedSum = (s0 + s1) + (s2 + s3);
+		double last = sorted[from];
+		if (replacement > last)
+			weightedSum += (replacement - last) * sortedWeights[from];
+		return weightedSum / ((w0 + w1) + (w2 + w3));
+	}
+
+	/**
+	 * The weighted average of the counted items: every item above the cut-off value
+	 * 'last', and as many at it as the selection took. Tie rule: among items scored
+	 * exactly at the cut-off, the lightest count first (the heavier ones are dropped), and
+	 * a replacement goes to the heaviest counted item at the cut-off. Both favour the
+	 * student and depend only on scores and weights, never on item order.
+	 * Used when ungraded items count as something other than 1.0, so they are not where
+	 * the sorted state has them; one pass over the items finds the counted ones.
+	 */
+	private double weightedAverage(int g, Course.EvaluationGroup group, double assumed, double last, int taken,
+			double replacement) {
+		int n = group.getItemCount();
+		int w = weightStart[g];
+		if (tieWeights.length < n)
+			tieWeights = new double[n];
+
+		double weightedSum = 0.0, weightTotal = 0.0;
+		int counted = 0, ties = 0;
+		for (int j = 0; j < n; j++) {
+			double value = group.isGraded(j) ? group.getNormalizedScore(j) : assumed;
+			if (value > last) {
+				weightedSum += itemWeights[w + j] * value;
+				weightTotal += itemWeights[w + j];
+				counted++;
+			} else if (value == last) {
+				tieWeights[ties++] = itemWeights[w + j];
+			}
+		}
+
+		// The lightest tied items fill the remaining places
+		Arrays.sort(tieWeights, 0, ties);
+		int fromTies = taken - counted;
+		double tiedWeight = 0.0;
+		for (int t = 0; t < fromTies; t++)
+			tiedWeight += tieWeights[t];
+		weightedSum += tiedWeight * last;
+		weightTotal += tiedWeight;
+
+		if (replacement > last && fromTies > 0)
+			weightedSum += (replacement - last) * tieWeights[fromTies - 1];
+		return weightedSum / weightTotal;
+	}
+
+	private static double sumGraded(Course.EvaluationGroup group) {
+		double sum = 0.0;
+		for (int i = 0; i < group.getItemCount(); i++) {
+			if (group.isGraded(i))
+				sum += group.getNormalizedScore(i);
+		}
+		return sum;
+	}
+
+	/**
+	 * Index of the first of the first n entries of an ascending array above value (n if none).
+	 */
+	private static int upperBound(double[] sorted, int n, double value) {
+		int low = 0, high = n;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sorted[mid] <= value)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Sum of values[from..to). Four independent running sums let the additions overlap
+	 * instead of each waiting for the one before.
+	 */
+	private static double sum(double[] values, int from, int to) {
+		double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+		int i = from;
+		for (; i + 3 < to; i += 4) {
+			s0 += values[i];
+			s1 += values[i + 1];
+			s2 += values[i + 2];
+			s3 += values[i + 3];
+		}
+		for (; i < to; i++)
+			s0 += values[i];
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	private double ungradedValue(int g, Course.EvaluationGroup group, int ungradedItems) {
+		if (ungradedItems == 0)
+			return 1.0; // Nothing to assume; keeps the plain Best-of-N selection
+		switch (ungraded[g]) {
+			case ZERO:
+				return 0.0;
+			case RUNNING_AVERAGE:
+				if (ungradedItems == group.getItemCount())
+					return 1.0;
+				// Weighted groups sum afresh: their tie rule compares scores with this average, so
+				// it must not depend on the rounding of earlier edits (they pass over every item anyway)
+				double gradedSum = weightStart[g] == NO_WEIGHTS ? group.getGradedSum() : sumGraded(group);
+				return gradedSum / (group.getItemCount() - ungradedItems);
+			default:
+				return 1.0;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * How an evaluation group turns its item scores into a group average, on top of its
+ * Best-of-N rule (itemsToCount). Immutable: the with... methods return changed copies,
+ * e.g. GradingPolicy.DEFAULT.withDropLowest(1).withUngraded(Ungraded.ZERO).
+ *
+ *   dropLowest   - the lowest N items do not count (the group then keeps at most
+ *                  items - N of its best items)
+ *   itemWeights  - one weight per item; the counted items are averaged by weight
+ *   bonusCap     - extra credit above 100% is allowed up to this group average (1.05 = 105%)
+ *   replacedBy   - another group whose average replaces this group's lowest counted
+ *                  item when higher ("replace the midterm with the final")
+ *   ungraded     - what an item without a score counts as
+ *
+ * DEFAULT is the original behaviour: best itemsToCount items, equal weights, no cap, no
+ * replacement, ungraded items at 100%. Groups with other policies are evaluated through
+ * a GradingPlan.
+ */
+public final class GradingPolicy {
+
+	public enum Ungraded {
+		FULL, // 100%, the original assumption
+		ZERO, // 0%, the pessimistic view
+		RUNNING_AVERAGE // The group's average over its graded items (100% if none are graded)
+	}
+
+	public static final GradingPolicy DEFAULT = new GradingPolicy(0, null, Double.POSITIVE_INFINITY, null,
+			Ungraded.FULL);
+
+	private final int dropLowest;
+	private final double[] itemWeights; // null = equal weights
+	private final double bonusCap;
+	private final String replacedBy; // Group name, or null
+	private final Ungraded ungraded;
+
+	private GradingPolicy(int dropLowest, double[] itemWeights, double bonusCap, String replacedBy,
+			Ungraded ungraded) {
+		this.dropLowest = dropLowest;
+		this.itemWeights = itemWeights;
+		this.bonusCap = bonusCap;
+		this.replacedBy = replacedBy;
+		this.ungraded = ungraded;
+	}
+
+	public GradingPolicy withDropLowest(int count) {
+		if (count < 0)
+			throw new IllegalArgumentException("Cannot drop a negative number of items: " + count);
+		return new GradingPolicy(count, itemWeights, bonusCap, replacedBy, ungraded);
+	}
+
+	/**
+	 * One positive weight per item of the group; null goes back to equal weights.
+	 */
+	public GradingPolicy withItemWeights(double... weights) {
+		if (weights != null) {
+			for (double weight : weights) {
+				if (!(weight > 0) || Double.isInfinite(weight))
+					throw new IllegalArgumentException("Item weights must be positive: " + Arrays.toString(weights));
+			}
+			weights = weights.clone();
+		}
+		return new GradingPolicy(dropLowest, weights, bonusCap, replacedBy, ungraded);
+	}
+
+	/**
+	 * Highest group average (normalized, 1.0 = 100%) that counts; POSITIVE_INFINITY for no cap.
+	 */
+	public GradingPolicy withBonusCap(double cap) {
+		if (!(cap > 0))
+			throw new IllegalArgumentException("Bonus cap must be positive: " + cap);
+		return new GradingPolicy(dropLowest, itemWeights, cap, replacedBy, ungraded);
+	}
+
+	/**
+	 * Name of the group whose average replaces this group's lowest counted item when
+	 * higher; null for no replacement.
+	 */
+	public GradingPolicy withReplacementFrom(String groupName) {
+		return new GradingPolicy(dropLowest, itemWeights, bonusCap, groupName, ungraded);
+	}
+
+	public GradingPolicy withUngraded(Ungraded assumption) {
+		return new GradingPolicy(dropLowest, itemWeights, bonusCap, replacedBy, assumption);
+	}
+
+	public int getDropLowest() {
+		return dropLowest;
+	}
+
+	public boolean hasItemWeights() {
+		return itemWeights != null;
+	}
+
+	/**
+	 * The weight of an item; 1 when the policy uses equal weights.
+	 */
+	public double getItemWeight(int index) {
+		return itemWeights == null ? 1.0 : itemWeights[index];
+	}
+
+	public int getItemWeightCount() {
+		return itemWeights == null ? 0 : itemWeights.length;
+	}
+
+	public double getBonusCap() {
+		return bonusCap;
+	}
+
+	public boolean hasBonusCap() {
+		return bonusCap != Double.POSITIVE_INFINITY;
+	}
+
+	public String getReplacedBy() {
+		return replacedBy;
+	}
+
+	public Ungraded getUngraded() {
+		return ungraded;
+	}
+
+	/**
+	 * True if this policy grades exactly like the original Best-of-N rule.
+	 */
+	public boolean isDefault() {
+		return dropLowest == 0 && itemWeights == null && !hasBonusCap() && replacedBy == null
+				&& ungraded == Ungraded.FULL;
+	}
+}
@@ -1,7 +1,7 @@
-package application;
-
-interface IGradable {
-	double calculateContribution(); // Polymorphic method
-
-	String getName();
+package application;
+
+interface IGradable {
+	double calculateContribution(); // Polymorphic method
+
+	String getName();
 }
\ No newline at end of file
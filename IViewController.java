@@ -0,0 +1,11 @@
+package application;
+
+/**
+ * Implemented by every FXML controller. Main parses each view once and keeps it, so
+ * a controller instance lives for the whole session and is reused on each visit.
+ */
+interface IViewController {
+	void setMainApp(Main mainApp); // Called once, right after the view is parsed
+
+	void refresh(); // Called every time the view is shown: reset inputs, reload session data
+}
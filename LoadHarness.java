@@ -0,0 +1,273 @@
+package application;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless data generator and load driver for sizing a deployment.
+ *
+ * Usage: java application.LoadHarness [generate | replay | all]   (default: all)
+ *
+ * generate - creates users and courses straight through DataManager
+ * replay   - runs a mix of login / dashboard / details / save operations against
+ *            the generated users from concurrent threads, then prints per-operation
+ *            throughput and latency percentiles
+ *
+ * Options (system properties, defaults in brackets):
+ *   pcgms.load.users [1000]        pcgms.load.coursesPerUser [20]
+ *   pcgms.load.groups [10]         pcgms.load.items [30]         (mean items per group)
+ *   pcgms.load.itemSpread [0.5]    items per group vary by up to +/- this fraction
+ *   pcgms.load.graded [0.8]        fraction of items with a score
+ *   pcgms.load.scoreMean [78]      pcgms.load.scoreStdDev [12]   (percent, normally distributed)
+ *   pcgms.load.seed [42]           pcgms.load.threads [8]
+ *   pcgms.load.seconds [30]        replay duration
+ *   pcgms.load.mix [login:10,dashboard:40,details:35,save:15]
+ *   pcgms.load.skew [1.0]          1 picks users uniformly; larger values favour low-numbered users
+ *
+ * Data goes to -Dpcgms.data.dir (default "data"); large runs are best combined with
+ * -Dpcgms.durability=none, and with a lower -Dpcgms.auth.iterations since every
+ * generated password is hashed. Example sized run: users=50000, coursesPerUser=20, groups=10, items=30.
+ */
+public class LoadHarness {
+
+    private static final String[] OPERATIONS = { "login", "dashboard", "details", "save" };
+
+    private final int users = Integer.getInteger("pcgms.load.users", 1000);
+    private final int coursesPerUser = Integer.getInteger("pcgms.load.coursesPerUser", 20);
+    private final int groups = Integer.getInteger("pcgms.load.groups", 10);
+    private final int items = Integer.getInteger("pcgms.load.items", 30);
+    private final double itemSpread = doubleProperty("pcgms.load.itemSpread", 0.5);
+    private final double gradedFraction = doubleProperty("pcgms.load.graded", 0.8);
+    private final double scoreMean = doubleProperty("pcgms.load.scoreMean", 78);
+    private final double scoreStdDev = doubleProperty("pcgms.load.scoreStdDev", 12);
+    private final long seed = Long.getLong("pcgms.load.seed", 42);
+    private final int threads = Integer.getInteger("pcgms.load.threads", 8);
+    private final int seconds = Integer.getInteger("pcgms.load.seconds", 30);
+    private final double skew = doubleProperty("pcgms.load.skew", 1.0);
+    private final int[] mixWeights = parseMix(System.getProperty("pcgms.load.mix", "login:10,dashboard:40,details:35,save:15"));
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "all";
+        LoadHarness harness = new LoadHarness();
+        if (mode.equals("generate") || mode.equals("all")) harness.generate();
+        if (mode.equals("replay") || mode.equals("all")) harness.replay();
+    }
+
+    // --- Generation ---
+
+    /**
+     * Creates all users and their courses. Users are split across the worker threads;
+     * every user's data comes from its own seeded generator, so the output does not
+     * depend on the thread count.
+     */
+    void generate() throws Exception {
+        System.out.printf("Generating %d users x %d courses x %d groups x ~%d items (seed %d)%n",
+                users, coursesPerUser, groups, items, seed);
+        long start = System.nanoTime();
+        AtomicInteger nextUser = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        LongAdder failures = new LongAdder();
+
+        runOnThreads(() -> {
+            int u;
+            while ((u = nextUser.getAndIncrement()) < users) {
+                try {
+                    generateUser(u);
+                } catch (IOException e) {
+                    failures.increment();
+                    System.err.println("Failed to generate " + username(u) + ": " + e.getMessage());
+                }
+                int finished = done.incrementAndGet();
+                if (finished % 1000 == 0) System.out.printf("  %d / %d users%n", finished, users);
+            }
+        });
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Generated %d users and %d courses in %.1f s (%d failures)%n",
+                users, (long) users * coursesPerUser, elapsed, failures.sum());
+    }
+
+    private void generateUser(int u) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed * 1_000_003L + u);
+        String username = username(u);
+        DataManager.saveUser(new User(username, PasswordHasher.hash(password(u))));
+
+        for (int c = 0; c < coursesPerUser; c++) {
+            Course course = new Course(courseId(c), "Course " + c + " of " + username, username);
+            for (int g = 0; g < groups; g++) {
+                int spread = (int) Math.round(items * itemSpread);
+                int total = Math.max(1, items - spread + random.nextInt(2 * spread + 1));
+                int counted = Math.max(1, total - random.nextInt(total / 2 + 1)); // Best half to all
+                course.addEvaluationGroup("Group " + g, 100.0 / groups, total, counted);
+
+                Course.EvaluationGroup group = course.getEvaluationGroups().get(g);
+                for (int i = 0; i < total; i++) {
+                    if (random.nextDouble() < gradedFraction) group.updateScore(i, randomScore(random), 100);
+                }
+            }
+            DataManager.saveCourse(course);
+        }
+    }
+
+    private double randomScore(SplittableRandom random) {
+        // Box-Muller, clipped to 0-100
+        double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+        return Math.max(0, Math.min(100, Math.round(scoreMean + scoreStdDev * gaussian)));
+    }
+
+    // --- Replay ---
+
+    /**
+     * Replays the operation mix from the configured number of threads for the
+     * configured duration and prints the report.
+     */
+    void replay() throws Exception {
+        System.out.printf("Replaying for %d s on %d threads (mix %s, skew %.2f)%n",
+                seconds, threads, System.getProperty("pcgms.load.mix", "default"), skew);
+        Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+        Map<String, LongAdder> errors = new LinkedHashMap<>();
+        for (String op : OPERATIONS) {
+            latencies.put(op, new LatencyHistogram());
+            errors.put(op, new LongAdder());
+        }
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long start = System.nanoTime();
+
+        runOnThreads(() -> {
+            SplittableRandom random = new SplittableRandom(seed + 7919L * threadIndex.incrementAndGet());
+            while (System.nanoTime() < deadline) {
+                int op = pickOperation(random);
+                int u = pickUser(random);
+                long opStart = System.nanoTime();
+                boolean ok;
+                try {
+                    ok = runOperation(op, u, random);
+                } catch (Exception e) {
+                    ok = false;
+                }
+                if (ok) {
+                    latencies.get(OPERATIONS[op]).recordSince(opStart);
+                } else {
+                    errors.get(OPERATIONS[op]).increment();
+                }
+            }
+        });
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%n%-10s %10s %10s %8s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "ops/s", "errors", "mean ms", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (String op : OPERATIONS) {
+            LatencyHistogram h = latencies.get(op);
+            System.out.printf("%-10s %10d %10.1f %8d %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                    op, h.getCount(), h.getCount() / elapsed, errors.get(op).sum(), h.getMean() / 1e6,
+                    h.getValueAtPercentile(50) / 1e6, h.getValueAtPercentile(99) / 1e6,
+                    h.getValueAtPercentile(99.9) / 1e6, h.getMax() / 1e6);
+        }
+    }
+
+    /**
+     * Runs one operation the way the UI would; returns false if it did not succeed.
+     */
+    private boolean runOperation(int op, int u, SplittableRandom random) throws IOException {
+        String username = username(u);
+        switch (OPERATIONS[op]) {
+            case "login": {
+                // LoginController: directory lookup and password check
+                return UserDirectory.authenticate(username, password(u)) != null;
+            }
+            case "dashboard":
+                // DashboardController: headers only
+                return !DataManager.loadCourseHeadersForUser(username).isEmpty();
+            case "details": {
+                // CourseDetailsController: full course and its grade
+                String courseId = courseId(random.nextInt(coursesPerUser));
+                synchronized (DataManager.courseLock(username, courseId)) {
+                    Course course = DataManager.loadCourse(username, courseId);
+                    return course != null && course.calculateCurrentGrade() >= 0;
+                }
+            }
+            default: {
+                // Save: edit a few scores and persist them as score changes. Threads take turns
+                // per course file from load to save, so each edit starts from the latest save.
+                String courseId = courseId(random.nextInt(coursesPerUser));
+                synchronized (DataManager.courseLock(username, courseId)) {
+                    Course course = DataManager.loadCourse(username, courseId);
+                    if (course == null) return false;
+                    List<Course.EvaluationGroup> all = course.getEvaluationGroups();
+                    for (int edit = 0; edit < 3; edit++) {
+                        Course.EvaluationGroup group = all.get(random.nextInt(all.size()));
+                        group.updateScore(random.nextInt(group.getItemCount()), randomScore(random), 100);
+                    }
+                    DataManager.saveScoreChanges(course);
+                }
+                return true;
+            }
+        }
+    }
+
+    private int pickOperation(SplittableRandom random) {
+        int roll = random.nextInt(mixWeights[mixWeights.length - 1]);
+        int op = 0;
+        while (roll >= mixWeights[op]) op++;
+        return op;
+    }
+
+    private int pickUser(SplittableRandom random) {
+        if (skew == 1.0) return random.nextInt(users);
+        return (int) Math.min(users - 1, users * Math.pow(random.nextDouble(), skew));
+    }
+
+    // --- Helpers ---
+
+    private void runOnThreads(Runnable worker) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch finished = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                try {
+                    worker.run();
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+        finished.await();
+        pool.shutdown();
+    }
+
+    /**
+     * Parses "name:weight,..." into cumulative weights in OPERATIONS order.
+     */
+    private static int[] parseMix(String mix) {
+        int[] weights = new int[OPERATIONS.length];
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split(":");
+            for (int op = 0; op < OPERATIONS.length; op++) {
+                if (OPERATIONS[op].equals(kv[0].trim())) weights[op] = Integer.parseInt(kv[1].trim());
+            }
+        }
+        for (int op = 1; op < weights.length; op++) weights[op] += weights[op - 1];
+        if (weights[weights.length - 1] <= 0) throw new IllegalArgumentException("Empty operation mix: " + mix);
+        return weights;
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    private static String username(int u) { return String.format("load%06d", u); }
+    private static String password(int u) { return "pw" + u; }
+    private static String courseId(int c) { return String.format("LOAD-%03d", c); }
+}
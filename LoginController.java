@@ -1,95 +1,159 @@
-package application;
-
-import javafx.event.ActionEvent;
-import javafx.fxml.FXML;
-import javafx.scene.control.Label;
-import javafx.scene.control.PasswordField;
-import javafx.scene.control.TextField;
-import java.io.IOException;
-
-public class LoginController {
-
-    @FXML private TextField usernameField;
-    @FXML private PasswordField passwordField;
-    @FXML private Label errorLabel;
-
-    private Main mainApp;
-
-    // Connects this controller to the Main application
-    public void setMainApp(Main mainApp) {
-        this.mainApp = mainApp;
-    }
-
-    /**
-     * Triggered when the "Sign In" button is clicked.
-     */
-    @FXML
-    private void handleLogin(ActionEvent event) {
-        String username = usernameField.getText().trim();
-        String password = passwordField.getText().trim();
-
-        if (username.isBlank() || password.isBlank()) {
-            showError("Please enter both username and password.");
-            return;
-        }
-
-        // 1. Load user data from the file system
-        User user = DataManager.loadUser(username);
-        
-        // 2. Validate password
-        if (user != null && user.getPassword().equals(password)) {
-            // Login Success: Set the session and move to Dashboard
-            mainApp.setCurrentUser(user);
-            mainApp.showDashboardView();
-        } else {
-            showError("Invalid username or password.");
-        }
-    }
-
-    /**
-     * Triggered when the "Create Account" link is clicked.
-     */
-    @FXML
-    private void handleRegister(ActionEvent event) {
-        String username = usernameField.getText().trim();
-        String password = passwordField.getText().trim();
-
-        if (username.isBlank() || password.isBlank()) {
-            showError("Enter a username and password to register.");
-            return;
-        }
-
-        // 1. Check if user already exists
-        if (DataManager.loadUser(username) != null) {
-            showError("User '" + username + "' already exists.");
-            return;
-        }
-
-        // 2. Create new User object
-        User newUser = new User(username, password);
-        
-        // 3. Save to file system
-        try {
-            DataManager.saveUser(newUser);
-            showError("Account created! You can now Sign In.", true); 
-        } catch (IOException e) {
-            showError("Error saving user data.");
-            e.printStackTrace();
-        }
-    }
-
-    // Helper to display messages to the user
-    private void showError(String message) {
-        showError(message, false);
-    }
-
-    private void showError(String message, boolean isSuccess) {
-        errorLabel.setVisible(true);
-        errorLabel.setText(message);
-        if (isSuccess) {
-            errorLabel.setStyle("-fx-text-fill: #38a169;"); // Green for success
-        } else {
-            errorLabel.setStyle("-fx-text-fill: #e53e3e;"); // Red for error
-        }
-    }
+package application;
+
+import javafx.concurrent.Task;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.control.Label;
+import javafx.scene.control.PasswordField;
+import javafx.scene.control.TextField;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class LoginController implements IViewController {
+
+    // Password hashing is slow by design, so sign-in and registration run here instead of
+    // on the FX thread. Daemon thread so a pending check never keeps the application alive.
+    private static final ExecutorService AUTHENTICATOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "login-auth");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @FXML private TextField usernameField;
+    @FXML private PasswordField passwordField;
+    @FXML private Label errorLabel;
+
+    private Main mainApp;
+    private Task<?> pendingTask; // The sign-in or registration in progress, if any
+
+    // Connects this controller to the Main application
+    @Override
+    public void setMainApp(Main mainApp) {
+        this.mainApp = mainApp;
+    }
+
+    /**
+     * Clears the form each time the login screen is shown (e.g. after logout).
+     */
+    @Override
+    public void refresh() {
+        usernameField.clear();
+        passwordField.clear();
+        errorLabel.setText("");
+        errorLabel.setVisible(false);
+    }
+
+    /**
+     * Triggered when the "Sign In" button is clicked.
+     */
+    @FXML
+    private void handleLogin(ActionEvent event) {
+        String username = usernameField.getText().trim();
+        String password = passwordField.getText().trim();
+
+        if (username.isBlank() || password.isBlank()) {
+            showError("Please enter both username and password.");
+            return;
+        }
+
+        if (isBusy()) return;
+
+        // Look the user up in the in-memory directory and check the password hash
+        Task<User> task = new Task<>() {
+            @Override
+            protected User call() {
+                return UserDirectory.authenticate(username, password);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            setBusy(null);
+            User user = task.getValue();
+            if (user != null) {
+                // Login Success: Set the session and move to Dashboard
+                mainApp.setCurrentUser(user);
+                mainApp.showDashboardView();
+            } else {
+                showError("Invalid username or password.");
+            }
+        });
+        task.setOnFailed(e -> {
+            setBusy(null);
+            showError("Could not sign in. Please try again.");
+            System.err.println("Sign-in failed: " + task.getException());
+        });
+
+        setBusy(task);
+        AUTHENTICATOR.submit(task);
+    }
+
+    /**
+     * Triggered when the "Create Account" link is clicked.
+     */
+    @FXML
+    private void handleRegister(ActionEvent event) {
+        String username = usernameField.getText().trim();
+        String password = passwordField.getText().trim();
+
+        if (username.isBlank() || password.isBlank()) {
+            showError("Enter a username and password to register.");
+            return;
+        }
+
+        if (isBusy()) return;
+
+        Task<Boolean> task = new Task<>() {
+            @Override
+            protected Boolean call() throws Exception {
+                // 1. Check if user already exists (answered from memory, no disk access)
+                if (UserDirectory.isRegistered(username)) return false;
+
+                // 2. Create the user with a hashed password and save it to the file system
+                UserDirectory.register(username, password);
+                return true;
+            }
+        };
+        task.setOnSucceeded(e -> {
+            setBusy(null);
+            if (task.getValue()) {
+                showError("Account created! You can now Sign In.", true);
+            } else {
+                showError("User '" + username + "' already exists.");
+            }
+        });
+        task.setOnFailed(e -> {
+            setBusy(null);
+            showError("Error saving user data.");
+            task.getException().printStackTrace();
+        });
+
+        setBusy(task);
+        AUTHENTICATOR.submit(task);
+    }
+
+    // A second click while a check is running is ignored
+    private boolean isBusy() {
+        return pendingTask != null;
+    }
+
+    // Locks the form while a task runs (null when it is done)
+    private void setBusy(Task<?> task) {
+        pendingTask = task;
+        usernameField.setDisable(task != null);
+        passwordField.setDisable(task != null);
+    }
+
+    // Helper to display messages to the user
+    private void showError(String message) {
+        showError(message, false);
+    }
+
+    private void showError(String message, boolean isSuccess) {
+        errorLabel.setVisible(true);
+        errorLabel.setText(message);
+        if (isSuccess) {
+            errorLabel.setStyle("-fx-text-fill: #38a169;"); // Green for success
+        } else {
+            errorLabel.setStyle("-fx-text-fill: #e53e3e;"); // Red for error
+        }
+    }
 }
\ No newline at end of file
@@ -1,138 +1,270 @@
-package application;
-
-import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
-import javafx.scene.image.Image;
-import javafx.scene.layout.AnchorPane;
-import javafx.stage.Stage;
-
-import java.io.IOException;
-import java.net.URL;
-
-public class Main extends Application {
-	private Stage primaryStage;
-
-	// Tracks the currently logged-in user so we know whose files to load
-	private User currentUser;
-
-	@Override
-	public void start(Stage primaryStage) {
-		this.primaryStage = primaryStage;
-
-		this.primaryStage.setTitle("PCGMS - Personalized Course & Grade Management System");
-
-		// Start application at the Login screen
-		switchToLoginScene();
-	}
-
-	// --- Session Management ---
-
-	public void setCurrentUser(User user) {
-		this.currentUser = user;
-	}
-
-	public User getCurrentUser() {
-		return currentUser;
-	}
-
-	// --- SCENE SWITCHING METHODS ---
-
-	/**
-	 * Loads the Login view. Called on startup and logout.
-	 */
-	public void switchToLoginScene() {
-		// Clear user session on logout
-		this.currentUser = null;
-		loadScene("LoginView.fxml", null);
-	}
-
-	/**
-	 * Loads the Dashboard view. Called after successful login.
-	 */
-	public void showDashboardView() {
-		// Security check: if no user is logged in, force them to login
-		if (currentUser == null) {
-			switchToLoginScene();
-			return;
-		}
-		loadScene("DashboardView.fxml", null);
-	}
-
-	/**
-	 * Loads the Add Course view.
-	 */
-	public void switchToAddCourseScene() {
-		loadScene("AddCourseView.fxml", null);
-	}
-
-	/**
-	 * Loads the Course Details view for a specific course.
-	 * 
-	 * @param course The Course data object to be passed to the controller.
-	 */
-	public void switchToCourseDetailsScene(Course course) {
-		loadScene("CourseDetailsView.fxml", course);
-	}
-
-	/**
-	 * Generic helper method to load FXML files and inject dependencies.
-	 * 
-	 * @param fxmlFileName The name of the FXML file (e.g., "LoginView.fxml")
-	 * @param data         Optional data (like a Course object) to pass to the
-	 *                     controller.
-	 */
-	private void loadScene(String fxmlFileName, Object data) {
-		try {
-			FXMLLoader loader = new FXMLLoader();
-			// Load FXML from the same package as Main.java
-			URL fxmlLocation = getClass().getResource(fxmlFileName);
-
-			if (fxmlLocation == null) {
-				System.err.println(
-						"CRITICAL ERROR: FXML file '" + fxmlFileName + "' not found in 'application' package.");
-				return;
-			}
-
-			loader.setLocation(fxmlLocation);
-			AnchorPane layout = loader.load();
-
-			// Get the controller associated with the FXML
-			Object controller = loader.getController();
-			// Run time polymorphism to call the appropriate setMainApp method
-
-			// --- Dependency Injection ---
-			// connect the Main application to the Controllers so they can switch scenes
-
-			if (controller instanceof LoginController loginController) {
-				loginController.setMainApp(this);
-			} else if (controller instanceof DashboardController dashboardController) {
-				dashboardController.setMainApp(this);
-			} else if (controller instanceof AddCourseController addCourseController) {
-				addCourseController.setMainApp(this);
-			} else if (controller instanceof CourseDetailsController courseDetailsController) {
-				courseDetailsController.setMainApp(this);
-				// If we passed a Course object (data), give it to the controller
-				if (data instanceof Course course) {
-					courseDetailsController.setCourse(course);
-				}
-			}
-
-			// Show the scene
-			Scene scene = new Scene(layout);
-			String imageUrl = getClass().getResource("images.png").toExternalForm();
-			Image image = new Image(imageUrl);
-			primaryStage.getIcons().add(image);
-			primaryStage.setScene(scene);
-			primaryStage.show();
-
-		} catch (IOException e) {
-			System.err.println("Failed to load scene: " + fxmlFileName);
-			e.printStackTrace();
-		}
-	}
-
-	public static void main(String[] args) {
-		launch(args);
-	}
+package application;
+
+import javafx.application.Application;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Scene;
+import javafx.scene.image.Image;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.layout.AnchorPane;
+import javafx.stage.Stage;
+
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+public class Main extends Application {
+	private Stage primaryStage;
+	private Scene scene; // Single scene; navigation swaps its root
+
+	// Parsed views by FXML file name. Each view is loaded once and reused on every visit.
+	private final Map<String, LoadedView> views = new HashMap<>();
+
+	// Views parsed in the background while the login screen is up
+	private static final String[] PREWARM_VIEWS = { "DashboardView.fxml", "AddCourseView.fxml",
+			"CourseDetailsView.fxml" };
+
+	// Startup timing report, in milliseconds since JVM start (-1 until reached)
+	private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+	private long loginShownMillis = -1;
+	private long dashboardShownMillis = -1;
+	private long signInNanos; // When the first dashboard was requested
+
+	// Tracks the currently logged-in user so we know whose files to load
+	private User currentUser;
+
+	@Override
+	public void start(Stage primaryStage) {
+		this.primaryStage = primaryStage;
+		FlightEvents.startContinuousRecordingIfRequested();
+
+		this.primaryStage.setTitle("PCGMS - Personalized Course & Grade Management System");
+
+		// Decode the window icon once for the whole session
+		String imageUrl = getClass().getResource("images.png").toExternalForm();
+		primaryStage.getIcons().add(new Image(imageUrl));
+
+		// Start application at the Login screen
+		switchToLoginScene();
+		startPrewarm();
+	}
+
+	/**
+	 * Prepares everything the first dashboard visit needs while the user is still on
+	 * the login screen: DataManager setup, grade engine warm-up and parsing the other
+	 * views. Parsed views are handed to the FX thread; one the user has already
+	 * opened in the meantime is kept.
+	 */
+	private void startPrewarm() {
+		if (!StartupPrewarmer.ENABLED)
+			return;
+
+		Thread prewarm = new Thread(() -> {
+			long start = System.nanoTime();
+			StartupPrewarmer.warmDataManager();
+			StartupPrewarmer.warmGradeEngine();
+
+			for (String fxmlFileName : PREWARM_VIEWS) {
+				LoadedView view = parseView(fxmlFileName);
+				if (view != null)
+					Platform.runLater(() -> views.putIfAbsent(fxmlFileName, view));
+			}
+			System.out.printf("[startup] prewarm finished in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+		}, "startup-prewarm");
+		prewarm.setDaemon(true);
+		prewarm.setPriority(Thread.MIN_PRIORITY);
+		prewarm.start();
+	}
+
+	// --- Session Management ---
+
+	public void setCurrentUser(User user) {
+		this.currentUser = user;
+	}
+
+	public User getCurrentUser() {
+		return currentUser;
+	}
+
+	// --- SCENE SWITCHING METHODS ---
+
+	/**
+	 * Loads the Login view. Called on startup and logout.
+	 */
+	public void switchToLoginScene() {
+		// Clear user session on logout
+		this.currentUser = null;
+		loadScene("LoginView.fxml", null);
+	}
+
+	/**
+	 * Loads the Dashboard view. Called after successful login.
+	 */
+	public void showDashboardView() {
+		// Security check: if no user is logged in, force them to login
+		if (currentUser == null) {
+			switchToLoginScene();
+			return;
+		}
+		if (dashboardShownMillis < 0)
+			signInNanos = System.nanoTime();
+		loadScene("DashboardView.fxml", null);
+	}
+
+	/**
+	 * Loads the Add Course view.
+	 */
+	public void switchToAddCourseScene() {
+		loadScene("AddCourseView.fxml", null);
+	}
+
+	/**
+	 * Loads the Course Details view for a specific course.
+	 * 
+	 * @param course The Course data object to be passed to the controller.
+	 */
+	public void switchToCourseDetailsScene(Course course) {
+		loadScene("CourseDetailsView.fxml", course);
+	}
+
+	/**
+	 * Opens the Course Details view from a dashboard header. This is the point where
+	 * the full Course object graph is loaded from disk.
+	 * 
+	 * @param header The lightweight header of the course that was clicked.
+	 */
+	public void switchToCourseDetailsScene(CourseHeader header) {
+		Course course = DataManager.loadCourse(header.getOwnerUsername(), header.getId());
+		if (course == null) {
+			System.err.println("Could not load course " + header.getId() + "; staying on dashboard.");
+			return;
+		}
+		switchToCourseDetailsScene(course);
+	}
+
+	/**
+	 * Generic helper method to show a view and inject dependencies. The FXML is only
+	 * parsed on the first visit; afterwards the cached view is refreshed and reused.
+	 * 
+	 * @param fxmlFileName The name of the FXML file (e.g., "LoginView.fxml")
+	 * @param data         Optional data (like a Course object) to pass to the
+	 *                     controller.
+	 */
+	private void loadScene(String fxmlFileName, Object data) {
+		long start = Metrics.startTimer();
+		LoadedView view = views.get(fxmlFileName);
+		if (view == null) {
+			view = parseView(fxmlFileName);
+			if (view == null)
+				return;
+			views.put(fxmlFileName, view);
+		}
+
+		// Reset the reused controller for this visit
+		FlightEvents.SceneLoad phase = FlightEvents.beginSceneLoad(fxmlFileName, "controller-injection");
+		view.controller.refresh();
+		if (view.controller instanceof CourseDetailsController courseDetailsController) {
+			// If we passed a Course object (data), give it to the controller
+			if (data instanceof Course course) {
+				courseDetailsController.setCourse(course);
+			}
+		}
+		phase.commit();
+
+		// Show the view, reusing the one scene once it exists
+		phase = FlightEvents.beginSceneLoad(fxmlFileName, "scene-show");
+		if (scene == null) {
+			scene = new Scene(view.root);
+			// Ctrl/Cmd+Shift+D dumps the continuous flight recording, if one is running
+			scene.getAccelerators().put(
+					new KeyCodeCombination(KeyCode.D, KeyCombination.SHORTCUT_DOWN, KeyCombination.SHIFT_DOWN),
+					FlightEvents::dump);
+			primaryStage.setScene(scene);
+		} else {
+			scene.setRoot(view.root);
+		}
+		primaryStage.show();
+		phase.commit();
+		Metrics.stopTimer(Metrics.timer("scene.load." + fxmlFileName), start);
+		reportStartup(fxmlFileName);
+	}
+
+	/**
+	 * Prints the startup timing report: when the login screen first appeared and
+	 * when the first dashboard appeared, both measured from JVM start.
+	 */
+	private void reportStartup(String fxmlFileName) {
+		if (loginShownMillis < 0 && fxmlFileName.equals("LoginView.fxml")) {
+			loginShownMillis = System.currentTimeMillis() - jvmStartMillis;
+			System.out.printf("[startup] time to login screen: %d ms%n", loginShownMillis);
+		} else if (dashboardShownMillis < 0 && fxmlFileName.equals("DashboardView.fxml")) {
+			dashboardShownMillis = System.currentTimeMillis() - jvmStartMillis;
+			System.out.printf("[startup] time to dashboard: %d ms (%d ms after sign-in)%n", dashboardShownMillis,
+					(System.nanoTime() - signInNanos) / 1_000_000);
+		}
+	}
+
+	/**
+	 * Parses an FXML file and connects its controller to this application.
+	 * Returns null (after logging) if the view cannot be loaded.
+	 */
+	private LoadedView parseView(String fxmlFileName) {
+		try {
+			FXMLLoader loader = new FXMLLoader();
+			// Load FXML from the same package as Main.java
+			URL fxmlLocation = getClass().getResource(fxmlFileName);
+
+			if (fxmlLocation == null) {
+				System.err.println(
+						"CRITICAL ERROR: FXML file '" + fxmlFileName + "' not found in 'application' package.");
+				return null;
+			}
+
+			loader.setLocation(fxmlLocation);
+			long start = Metrics.startTimer();
+			FlightEvents.SceneLoad phase = FlightEvents.beginSceneLoad(fxmlFileName, "fxml-load");
+			AnchorPane layout = loader.load();
+			phase.commit();
+			Metrics.stopTimer(Metrics.timer("scene.parse." + fxmlFileName), start);
+
+			// --- Dependency Injection ---
+			// connect the Main application to the Controllers so they can switch scenes
+			Object controller = loader.getController();
+			if (!(controller instanceof IViewController viewController)) {
+				System.err.println("CRITICAL ERROR: '" + fxmlFileName + "' has no IViewController controller.");
+				return null;
+			}
+			phase = FlightEvents.beginSceneLoad(fxmlFileName, "controller-injection");
+			viewController.setMainApp(this);
+			phase.commit();
+			return new LoadedView(layout, viewController);
+
+		} catch (IOException e) {
+			System.err.println("Failed to load scene: " + fxmlFileName);
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * A parsed view: its root node and its (reused) controller.
+	 */
+	private static final class LoadedView {
+		final AnchorPane root;
+		final IViewController controller;
+
+		LoadedView(AnchorPane root, IViewController controller) {
+			this.root = root;
+			this.controller = controller;
+		}
+	}
+
+	public static void main(String[] args) {
+		launch(args);
+	}
 }
\ No newline at end of file
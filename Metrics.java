@@ -0,0 +1,269 @@
+package application;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * In-process metrics: counters, gauges and latency timers (LatencyHistogram), kept in
+ * one registry by name.
+ *
+ * Every metric is published as a JMX MBean under "application:type=Metrics,name=...",
+ * next to a "registry" MBean with dump() and reset() operations. With
+ * -Dpcgms.metrics.dumpSeconds=N the registry is also printed to stdout every N seconds.
+ * -Dpcgms.metrics=false turns recording off; the timing calls then reduce to a check
+ * of a constant flag, which the JIT removes.
+ *
+ * Instrumented code keeps its metrics in static final fields and times work with:
+ *   long start = Metrics.startTimer();
+ *   ...
+ *   Metrics.stopTimer(SOME_TIMER, start);
+ */
+public final class Metrics {
+
+    static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("pcgms.metrics"));
+
+    private static final String JMX_DOMAIN = "application";
+    private static final long DUMP_SECONDS = Long.getLong("pcgms.metrics.dumpSeconds", 0);
+
+    // Sorted by name, so dumps group related metrics together
+    private static final Map<String, Object> registry = new ConcurrentSkipListMap<>();
+
+    // The thread running withoutTimers work, whose timings are not recorded
+    private static volatile Thread untimedThread;
+
+    static {
+        if (ENABLED) {
+            registerMBean("registry", new RegistryControl(), RegistryMXBean.class);
+            if (DUMP_SECONDS > 0) startPeriodicDump();
+        }
+    }
+
+    private Metrics() {
+    }
+
+    // --- Registration ---
+
+    /**
+     * Returns the counter with this name, creating and publishing it on first use.
+     */
+    public static Counter counter(String name) {
+        return register(name, Counter.class, Counter::new, CounterMXBean.class);
+    }
+
+    /**
+     * Returns the latency timer with this name, creating and publishing it on first use.
+     */
+    public static LatencyHistogram timer(String name) {
+        return register(name, LatencyHistogram.class, LatencyHistogram::new, null);
+    }
+
+    /**
+     * Publishes a value read on demand (e.g. a cache size). Replaces a gauge of the same name.
+     */
+    public static void gauge(String name, DoubleSupplier value) {
+        Gauge gauge = new Gauge(value);
+        registry.put(name, gauge);
+        if (ENABLED) registerMBean(name, gauge, GaugeMXBean.class);
+    }
+
+    private static <T> T register(String name, Class<T> type, Supplier<T> factory,
+                                  Class<?> mbeanInterface) {
+        Object metric = registry.get(name);
+        if (metric == null) {
+            // ConcurrentSkipListMap.computeIfAbsent may run its function more than once, so the
+            // metric is created first and only the instance that wins putIfAbsent is published
+            T created = factory.get();
+            metric = registry.putIfAbsent(name, created);
+            if (metric == null) {
+                metric = created;
+                if (ENABLED) {
+                    if (created instanceof LatencyHistogram timer) {
+                        registerMBean(name, new TimerView(timer), TimerMXBean.class);
+                    } else {
+                        registerMBean(name, created, mbeanInterface);
+                    }
+                }
+            }
+        }
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException("Metric '" + name + "' is already registered as another type");
+        }
+        return type.cast(metric);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static void registerMBean(String name, Object implementation, Class mbeanInterface) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=Metrics,name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+            server.registerMBean(new StandardMBean(implementation, mbeanInterface, true), objectName);
+        } catch (Exception e) {
+            System.err.println("Could not publish metric " + name + " over JMX: " + e.getMessage());
+        }
+    }
+
+    // --- Timing ---
+
+    /**
+     * Start time for stopTimer, or 0 when metrics are disabled or the calling thread is
+     * inside withoutTimers.
+     */
+    public static long startTimer() {
+        return ENABLED && Thread.currentThread() != untimedThread ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records the time since startTimer in the given timer.
+     */
+    public static void stopTimer(LatencyHistogram timer, long start) {
+        if (ENABLED && start != 0L) timer.recordSince(start);
+    }
+
+    /**
+     * Runs synthetic work (such as the startup prewarm) on this thread without recording
+     * its timings, so it does not skew the latencies of real calls. Calls made by other
+     * threads meanwhile are still recorded. For one thread at a time.
+     */
+    public static double withoutTimers(DoubleSupplier work) {
+        untimedThread = Thread.currentThread();
+        try {
+            return work.getAsDouble();
+        } finally {
+            untimedThread = null;
+        }
+    }
+
+    // --- Reporting ---
+
+    /**
+     * A text report of every metric, one per line. Timer values are in microseconds.
+     */
+    public static String dump() {
+        StringBuilder sb = new StringBuilder("--- metrics ")
+                .append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append(" ---\n");
+        for (Map.Entry<String, Object> entry : registry.entrySet()) {
+            Object metric = entry.getValue();
+            if (metric instanceof Counter counter) {
+                sb.append(String.format("counter %-44s %d%n", entry.getKey(), counter.getCount()));
+            } else if (metric instanceof Gauge gauge) {
+                sb.append(String.format("gauge   %-44s %.2f%n", entry.getKey(), gauge.getValue()));
+            } else if (metric instanceof LatencyHistogram timer) {
+                TimerView view = new TimerView(timer);
+                sb.append(String.format("timer   %-44s count=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n",
+                        entry.getKey(), view.getCount(), view.getMeanMicros(), view.getP50Micros(),
+                        view.getP99Micros(), view.getP999Micros(), view.getMaxMicros()));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Clears all counters and timers; gauges are read live and are unaffected.
+     */
+    public static void reset() {
+        for (Object metric : registry.values()) {
+            if (metric instanceof Counter counter) counter.reset();
+            else if (metric instanceof LatencyHistogram timer) timer.reset();
+        }
+    }
+
+    private static void startPeriodicDump() {
+        ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(() -> System.out.print(dump()), DUMP_SECONDS, DUMP_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // --- Metric Types and JMX Views ---
+
+    public interface CounterMXBean {
+        long getCount();
+    }
+
+    public interface GaugeMXBean {
+        double getValue();
+    }
+
+    public interface TimerMXBean {
+        long getCount();
+        double getMeanMicros();
+        double getP50Micros();
+        double getP99Micros();
+        double getP999Micros();
+        double getMaxMicros();
+    }
+
+    public interface RegistryMXBean {
+        String dump();
+        void reset();
+    }
+
+    /**
+     * A monotonically increasing count (e.g. errors), cheap under contention.
+     */
+    public static final class Counter implements CounterMXBean {
+        private final LongAdder count = new LongAdder();
+
+        public void increment() {
+            if (ENABLED) count.increment();
+        }
+
+        public void add(long n) {
+            if (ENABLED) count.add(n);
+        }
+
+        @Override
+        public long getCount() { return count.sum(); }
+
+        void reset() { count.reset(); }
+    }
+
+    private static final class Gauge implements GaugeMXBean {
+        private final DoubleSupplier value;
+
+        Gauge(DoubleSupplier value) {
+            this.value = value;
+        }
+
+        @Override
+        public double getValue() { return value.getAsDouble(); }
+    }
+
+    /**
+     * Exposes a timer's histogram in microseconds.
+     */
+    private static final class TimerView implements TimerMXBean {
+        private final LatencyHistogram histogram;
+
+        TimerView(LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override public long getCount() { return histogram.getCount(); }
+        @Override public double getMeanMicros() { return histogram.getMean() / 1000.0; }
+        @Override public double getP50Micros() { return histogram.getValueAtPercentile(50) / 1000.0; }
+        @Override public double getP99Micros() { return histogram.getValueAtPercentile(99) / 1000.0; }
+        @Override public double getP999Micros() { return histogram.getValueAtPercentile(99.9) / 1000.0; }
+        @Override public double getMaxMicros() { return histogram.getMax() / 1000.0; }
+    }
+
+    private static final class RegistryControl implements RegistryMXBean {
+        @Override public String dump() { return Metrics.dump(); }
+        @Override public void reset() { Metrics.reset(); }
+    }
+}
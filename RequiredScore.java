@@ -0,0 +1,274 @@
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The score still needed to reach a target grade, assuming every remaining (ungraded)
+ * item gets the same normalized score x.
+ *
+ * With x in place of the ungraded items, each group's contribution is the sum of its
+ * best itemsToCount values divided by itemsToCount, times its weight. That is a
+ * non-decreasing, piecewise-linear function of x whose slope only changes where x
+ * crosses a graded value of the group (the point where an ungraded item overtakes
+ * a graded one in the Best-of-N selection). The course grade is the sum over groups,
+ * so the solver binary-searches the merged graded values for the segment where the
+ * target is reached and solves that linear piece exactly. Each evaluation is a
+ * binary search plus prefix sums per group, so a solve is O(N log N) on primitive
+ * arrays, cheap enough to rerun after every edit.
+ *
+ * Courses with custom grading policies (weights, caps, replacements) are still
+ * non-decreasing in x but no longer have breakpoints only at graded values, so their
+ * GradingPlan is bisected instead: BISECTION_STEPS evaluations of O(N) each.
+ */
+public final class RequiredScore {
+
+	// Bisection range and steps for policy-graded courses; needing more than MAX_POLICY_SCORE counts as unreachable
+	private static final double MAX_POLICY_SCORE = 10.0;
+	private static final int BISECTION_STEPS = 60;
+
+	private final double targetGrade;
+	private final double required; // Normalized; 0 if already secured, +Infinity if unreachable
+	private final int remainingItems;
+	private final String[] groupNames;
+	private final int[] groupRemaining;
+	private final double[] groupPoints; // Grade points from each group if the remaining items score 'required'
+	private final double[] groupMaxPoints; // Grade points from each group if they score 100%
+
+	private RequiredScore(double targetGrade, double required, int remainingItems, String[] groupNames,
+			int[] groupRemaining, double[] groupPoints, double[] groupMaxPoints) {
+		this.targetGrade = targetGrade;
+		this.required = required;
+		this.remainingItems = remainingItems;
+		this.groupNames = groupNames;
+		this.groupRemaining = groupRemaining;
+		this.groupPoints = groupPoints;
+		this.groupMaxPoints = groupMaxPoints;
+	}
+
+	// --- Results ---
+
+	public double getTargetGrade() {
+		return targetGrade;
+	}
+
+	/**
+	 * The normalized score needed on every remaining item (0.85 = 85%). 0 means the target
+	 * is reached even with zeros; above 1 means it needs extra credit; +Infinity means no
+	 * score on the remaining items can reach it.
+	 */
+	public double getRequiredScore() {
+		return required;
+	}
+
+	public boolean isReachable() {
+		return required <= 1.0;
+	}
+
+	public int getRemainingItems() {
+		return remainingItems;
+	}
+
+	public int getGroupCount() {
+		return groupNames.length;
+	}
+
+	public String getGroupName(int group) {
+		return groupNames[group];
+	}
+
+	public int getGroupRemainingItems(int group) {
+		return groupRemaining[group];
+	}
+
+	/**
+	 * Grade points (out of the group's weight) the group yields at the required score;
+	 * at a full score if the target is unreachable.
+	 */
+	public double getGroupPoints(int group) {
+		return groupPoints[group];
+	}
+
+	/**
+	 * Grade points the group yields if every remaining item scores 100%.
+	 */
+	public double getGroupMaxPoints(int group) {
+		return groupMaxPoints[group];
+	}
+
+	// --- Solver ---
+
+	static RequiredScore solve(List<Course.EvaluationGroup> groups, double targetGrade) {
+		int count = groups.size();
+		GroupCurve[] curves = new GroupCurve[count];
+		int gradedTotal = 0, remaining = 0;
+		for (int g = 0; g < count; g++) {
+			curves[g] = new GroupCurve(groups.get(g));
+			gradedTotal += curves[g].graded.length;
+			remaining += curves[g].ungraded;
+		}
+
+		// Candidate breakpoints: every graded value, merged and sorted
+		double[] breakpoints = new double[gradedTotal];
+		int n = 0;
+		for (GroupCurve curve : curves) {
+			System.arraycopy(curve.graded, 0, breakpoints, n, curve.graded.length);
+			n += curve.graded.length;
+		}
+		Arrays.sort(breakpoints);
+
+		double required = solveFor(curves, breakpoints, targetGrade);
+
+		// Per-group breakdown at the answer (at 100% if the target cannot be reached)
+		double at = Double.isInfinite(required) ? 1.0 : required;
+		String[] names = new String[count];
+		int[] groupRemaining = new int[count];
+		double[] points = new double[count];
+		double[] maxPoints = new double[count];
+		for (int g = 0; g < count; g++) {
+			names[g] = groups.get(g).getName();
+			groupRemaining[g] = curves[g].ungraded;
+			points[g] = curves[g].pointsAt(at);
+			maxPoints[g] = curves[g].pointsAt(1.0);
+		}
+		return new RequiredScore(targetGrade, required, remaining, names, groupRemaining, points, maxPoints);
+	}
+
+	/**
+	 * Solves through the course's GradingPlan, with every ungraded item at the same score.
+	 */
+	static RequiredScore solve(List<Course.EvaluationGroup> groups, GradingPlan plan, double targetGrade) {
+		double required;
+		if (plan.evaluate(groups, 0.0, null) >= targetGrade) {
+			required = 0.0;
+		} else if (plan.evaluate(groups, MAX_POLICY_SCORE, null) < targetGrade) {
+			required = Double.POSITIVE_INFINITY;
+		} else {
+			double lo = 0.0, hi = MAX_POLICY_SCORE;
+			for (int step = 0; step < BISECTION_STEPS; step++) {
+				double mid = (lo + hi) / 2;
+				if (plan.evaluate(groups, mid, null) >= targetGrade)
+					hi = mid;
+				else
+					lo = mid;
+			}
+			required = hi;
+		}
+
+		int count = groups.size();
+		String[] names = new String[count];
+		int[] groupRemaining = new int[count];
+		double[] points = new double[count];
+		double[] maxPoints = new double[count];
+		int remaining = 0;
+		plan.evaluate(groups, Double.isInfinite(required) ? 1.0 : required, points);
+		plan.evaluate(groups, 1.0, maxPoints);
+		for (int g = 0; g < count; g++) {
+			names[g] = groups.get(g).getName();
+			groupRemaining[g] = groups.get(g).getUngradedCount();
+			remaining += groupRemaining[g];
+		}
+		return new RequiredScore(targetGrade, required, remaining, names, groupRemaining, points, maxPoints);
+	}
+
+	private static double solveFor(GroupCurve[] curves, double[] breakpoints, double target) {
+		if (gradeAt(curves, 0.0) >= target)
+			return 0.0;
+
+		// First breakpoint (above 0) where the grade reaches the target
+		int first = Arrays.binarySearch(breakpoints, 0.0);
+		first = first < 0 ? -first - 1 : first + 1;
+		int lo = first, hi = breakpoints.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (gradeAt(curves, breakpoints[mid]) >= target)
+				hi = mid;
+			else
+				lo = mid + 1;
+		}
+
+		double left = lo > first ? breakpoints[lo - 1] : 0.0;
+		double leftGrade = gradeAt(curves, left);
+		if (lo < breakpoints.length) {
+			// Linear between the two breakpoints: interpolate exactly
+			double right = breakpoints[lo];
+			double rightGrade = gradeAt(curves, right);
+			if (rightGrade == leftGrade)
+				return left;
+			return left + (target - leftGrade) * (right - left) / (rightGrade - leftGrade);
+		}
+
+		// Past the largest graded value every ungraded item is among the counted best
+		double slope = 0.0;
+		for (GroupCurve curve : curves)
+			slope += curve.finalSlope();
+		if (slope <= 0.0)
+			return Double.POSITIVE_INFINITY;
+		return left + (target - leftGrade) / slope;
+	}
+
+	private static double gradeAt(GroupCurve[] curves, double x) {
+		double grade = 0.0;
+		for (GroupCurve curve : curves)
+			grade += curve.pointsAt(x);
+		return grade;
+	}
+
+	/**
+	 * One group's contribution as a function of the score x of its ungraded items.
+	 */
+	private static final class GroupCurve {
+		final double[] graded; // Ascending
+		final double[] bestSums; // bestSums[j] = sum of the j largest graded values
+		final int ungraded;
+		final int itemsToCount;
+		final double weight;
+
+		GroupCurve(Course.EvaluationGroup group) {
+			ungraded = group.getUngradedCount();
+			graded = group.getGradedSorted(ungraded);
+			itemsToCount = group.getItemsToCount();
+			weight = group.getTotalWeight();
+
+			bestSums = new double[graded.length + 1];
+			for (int j = 1; j <= graded.length; j++)
+				bestSums[j] = bestSums[j - 1] + graded[graded.length - j];
+		}
+
+		/**
+		 * Grade points (0..weight) with every ungraded item at x, using the same Best-of-N
+		 * rule as EvaluationGroup.calculateContribution.
+		 */
+		double pointsAt(double x) {
+			if (itemsToCount == 0 || graded.length + ungraded == 0)
+				return 0.0;
+			int above = graded.length - upperBound(x); // Graded values strictly above x
+			int fromAbove = Math.min(above, itemsToCount);
+			int fromUngraded = Math.min(ungraded, itemsToCount - fromAbove);
+			int fromBelow = Math.min(graded.length - above, itemsToCount - fromAbove - fromUngraded);
+			double best = bestSums[fromAbove] + fromUngraded * x + (bestSums[fromAbove + fromBelow] - bestSums[fromAbove]);
+			return best / itemsToCount * weight;
+		}
+
+		/**
+		 * Slope of pointsAt once x is above every graded value.
+		 */
+		double finalSlope() {
+			if (itemsToCount == 0)
+				return 0.0;
+			return (double) Math.min(ungraded, itemsToCount) / itemsToCount * weight;
+		}
+
+		private int upperBound(double x) {
+			int lo = 0, hi = graded.length;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (graded[mid] <= x)
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+			return lo;
+		}
+	}
+}
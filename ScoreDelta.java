@@ -0,0 +1,34 @@
+package application;
+
+/**
+ * A single score edit: item [itemIndex] of evaluation group [groupIndex] now has the given
+ * score and max points. Deltas are absolute (not relative), so replaying one twice is harmless.
+ */
+public class ScoreDelta {
+
+    private final int groupIndex;
+    private final int itemIndex;
+    private final double score;
+    private final double maxPoints;
+
+    public ScoreDelta(int groupIndex, int itemIndex, double score, double maxPoints) {
+        this.groupIndex = groupIndex;
+        this.itemIndex = itemIndex;
+        this.score = score;
+        this.maxPoints = maxPoints;
+    }
+
+    /**
+     * Applies this edit to a course. Deltas that no longer match the course structure are ignored.
+     */
+    public void applyTo(Course course) {
+        if (groupIndex >= 0 && groupIndex < course.getEvaluationGroups().size()) {
+            course.getEvaluationGroups().get(groupIndex).updateScore(itemIndex, score, maxPoints);
+        }
+    }
+
+    public int getGroupIndex() { return groupIndex; }
+    public int getItemIndex() { return itemIndex; }
+    public double getScore() { return score; }
+    public double getMaxPoints() { return maxPoints; }
+}
@@ -0,0 +1,108 @@
+package application;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of ScoreDelta records kept next to a course file ([courseID].journal).
+ * Saving a few edited scores appends a few fixed-size records (via AtomicFileWriter.append) instead of rewriting the
+ * whole course; DataManager folds the journal back into the course file once it grows.
+ *
+ * Record layout (28 bytes): int groupIndex, int itemIndex, double score, double maxPoints,
+ * int CRC32 of the preceding 24 bytes. Replay stops at the first short or damaged record,
+ * so a crash in the middle of an append loses at most that append. The damaged tail is then
+ * cut off, so later appends land right after the last intact record instead of behind
+ * bytes that replay would never get past.
+ */
+public class ScoreJournal {
+
+    private static final int BODY_SIZE = 4 + 4 + 8 + 8;
+    private static final int RECORD_SIZE = BODY_SIZE + 4;
+
+    /**
+     * Encodes the given deltas as journal records, ready to be appended in a single write.
+     */
+    public static byte[] encode(List<ScoreDelta> deltas) {
+        ByteBuffer buffer = ByteBuffer.allocate(deltas.size() * RECORD_SIZE);
+        CRC32 crc = new CRC32();
+        for (ScoreDelta delta : deltas) {
+            int start = buffer.position();
+            buffer.putInt(delta.getGroupIndex())
+                    .putInt(delta.getItemIndex())
+                    .putDouble(delta.getScore())
+                    .putDouble(delta.getMaxPoints());
+            crc.reset();
+            crc.update(buffer.array(), start, BODY_SIZE);
+            buffer.putInt((int) crc.getValue());
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Applies every intact record in the journal to the course, in order, and truncates
+     * the journal after the last of them if anything follows.
+     * Returns the number of records applied (0 if there is no journal).
+     */
+    public static int replay(File journal, Course course) throws IOException {
+        return scan(journal, course, true);
+    }
+
+    /**
+     * Applies every intact record like replay, but leaves the file untouched. For readers
+     * that do not hold the course's lock in DataManager, where a "damaged" tail may be an
+     * append still in progress.
+     */
+    public static int read(File journal, Course course) throws IOException {
+        return scan(journal, course, false);
+    }
+
+    /**
+     * Checks every record of the journal and truncates it after the last intact one, so
+     * the next append is readable again. Returns the number of intact records.
+     */
+    public static int repair(File journal) throws IOException {
+        return scan(journal, null, true);
+    }
+
+    private static int scan(File journal, Course course, boolean truncateTail) throws IOException {
+        if (!journal.exists()) return 0;
+
+        FlightEvents.FileRead read = new FlightEvents.FileRead();
+        read.begin();
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(journal.toPath()));
+        FlightEvents.commitFileRead(read, "journal", journal.toPath(), buffer.capacity());
+        CRC32 crc = new CRC32();
+        int intact = 0;
+        while (buffer.remaining() >= RECORD_SIZE) {
+            int start = buffer.position();
+            crc.reset();
+            crc.update(buffer.array(), start, BODY_SIZE);
+
+            ScoreDelta delta = new ScoreDelta(buffer.getInt(), buffer.getInt(), buffer.getDouble(), buffer.getDouble());
+            if (buffer.getInt() != (int) crc.getValue()) {
+                buffer.position(start);
+                break;
+            }
+            if (course != null) delta.applyTo(course);
+            intact++;
+        }
+        if (truncateTail && buffer.hasRemaining()) {
+            System.err.println("Dropping damaged tail of score journal " + journal.getName()
+                    + " (" + buffer.remaining() + " bytes)");
+            truncate(journal, buffer.position());
+        }
+        return intact;
+    }
+
+    private static void truncate(File journal, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(journal.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+            channel.force(false);
+        }
+    }
+}
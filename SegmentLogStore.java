@@ -0,0 +1,513 @@
+package application;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Log-structured storage backend: every saved User or Course is appended as a record to
+ * the current segment file (data/log/segment-NNNNNN.log), and the newest record per key wins.
+ * Enabled in DataManager with -Dpcgms.storage=log.
+ *
+ * Record layout:
+ *   int magic, byte type, int keyLength, int metaLength, int payloadLength, long sequence, int payloadCrc,
+ *   key bytes (UTF-8), meta bytes, payload bytes
+ *
+ * The meta section of a course record holds its CourseHeader fields, so opening the store only
+ * reads record headers, keys and metas to rebuild the in-memory index; payloads are never decoded
+ * at startup. Reads go through read-only memory mappings of the segments. A background task
+ * compacts the log once superseded records take up more space than live ones.
+ */
+public class SegmentLogStore implements Closeable {
+
+    private static final int RECORD_MAGIC = 0x50434752; // "PCGR"
+    private static final int HEADER_SIZE = 4 + 1 + 4 + 4 + 4 + 8 + 4;
+    private static final byte TYPE_USER = 1;
+    private static final byte TYPE_COURSE = 2;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final long SEGMENT_SIZE = Long.getLong("pcgms.log.segmentSize", 16L << 20);
+    // A segment's mapping is re-created once this much (or as much as is mapped) was appended after it
+    private static final long MAP_CHUNK = 1L << 20;
+
+    // Compaction runs once dead bytes exceed live bytes and this floor
+    private static final long COMPACTION_MIN_DEAD_BYTES = Long.getLong("pcgms.log.compactionMinBytes", 4L << 20);
+    private static final long COMPACTION_INTERVAL_SECONDS = 30;
+
+    private final Path dir;
+    private final AtomicFileWriter syncer; // Applies DataManager's durability mode to appends
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private Segment active;
+
+    // key -> location of the newest record for that key
+    private final Map<String, RecordLocation> index = new HashMap<>();
+    // owner -> (courseId -> header), in first-save order
+    private final Map<String, LinkedHashMap<String, CourseHeader>> headersByOwner = new HashMap<>();
+
+    private long nextSequence = 1;
+    private long liveBytes;
+    private long deadBytes;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService compactor;
+
+    private SegmentLogStore(Path dir, AtomicFileWriter syncer) {
+        this.dir = dir;
+        this.syncer = syncer;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "log-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Opens (or creates) a store in the given directory, rebuilding the index from the
+     * segment headers and truncating a torn record at the end of the last segment.
+     */
+    public static SegmentLogStore open(Path dir, AtomicFileWriter syncer) throws IOException {
+        Files.createDirectories(dir);
+        SegmentLogStore store = new SegmentLogStore(dir, syncer);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int id = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                store.segments.put(id, new Segment(id, file));
+            }
+        }
+        for (Segment segment : store.segments.values()) {
+            store.scan(segment, segment == store.segments.lastEntry().getValue());
+        }
+
+        store.active = store.segments.isEmpty() ? store.createSegment(1) : store.segments.lastEntry().getValue();
+        store.compactor.scheduleWithFixedDelay(store::compactIfNeeded,
+                COMPACTION_INTERVAL_SECONDS, COMPACTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        return store;
+    }
+
+    // --- User Records ---
+
+    public void saveUser(User user) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(user);
+        }
+        append(TYPE_USER, userKey(user.getUsername()), new byte[0], bytes.toByteArray());
+    }
+
+    public User loadUser(String username) throws IOException {
+        byte[] payload = readPayload(userKey(username));
+        if (payload == null) return null;
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+            return (User) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown class in user record for " + username, e);
+        }
+    }
+
+    /**
+     * Returns the names of all users with a record in the log, from the in-memory index.
+     */
+    public List<String> listUsernames() {
+        String prefix = userKey("");
+        List<String> usernames = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (String key : index.keySet()) {
+                if (key.startsWith(prefix)) usernames.add(key.substring(prefix.length()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return usernames;
+    }
+
+    // --- Course Records ---
+
+    public void saveCourse(Course course) throws IOException {
+        ByteArrayOutputStream meta = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(meta)) {
+            out.writeUTF(course.getOwnerUsername());
+            out.writeUTF(course.getId());
+            out.writeUTF(course.getName());
+            out.writeDouble(course.calculateCurrentGrade());
+        }
+        append(TYPE_COURSE, courseKey(course.getOwnerUsername(), course.getId()), meta.toByteArray(),
+                CourseCodec.encode(course));
+    }
+
+    public Course loadCourse(String username, String courseId) throws IOException {
+        byte[] payload = readPayload(courseKey(username, courseId));
+        return payload == null ? null : CourseCodec.decode(payload);
+    }
+
+    /**
+     * Returns the headers of a user's courses straight from the in-memory index.
+     */
+    public List<CourseHeader> loadCourseHeaders(String username) {
+        lock.readLock().lock();
+        try {
+            Map<String, CourseHeader> headers = headersByOwner.get(username);
+            return headers == null ? new ArrayList<>() : new ArrayList<>(headers.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Statistics ---
+
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getLiveBytes() {
+        lock.readLock().lock();
+        try {
+            return liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getDeadBytes() {
+        lock.readLock().lock();
+        try {
+            return deadBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Compaction ---
+
+    /**
+     * Rewrites all live records into fresh segments and deletes the old ones.
+     * Records are copied byte-for-byte in sequence order; nothing is decoded.
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (deadBytes == 0) return;
+
+            List<Map.Entry<String, RecordLocation>> live = new ArrayList<>(index.entrySet());
+            live.sort(Comparator.comparingLong(e -> e.getValue().sequence));
+
+            List<Segment> oldSegments = new ArrayList<>(segments.values());
+            active = createSegment(segments.lastKey() + 1);
+
+            for (Map.Entry<String, RecordLocation> entry : live) {
+                RecordLocation old = entry.getValue();
+                ByteBuffer record = segments.get(old.segmentId).slice(old.recordOffset, old.recordSize);
+                if (active.size > 0 && active.size + old.recordSize > SEGMENT_SIZE) {
+                    active = createSegment(active.id + 1);
+                }
+                long offset = active.append(record);
+                entry.setValue(new RecordLocation(active.id, offset, old.recordSize,
+                        (int) (old.payloadOffset - old.recordOffset), old.payloadLength, old.payloadCrc, old.sequence));
+            }
+
+            // The copies must be on disk before the originals are deleted
+            for (Segment segment : segments.values()) {
+                if (!oldSegments.contains(segment)) segment.channel.force(false);
+            }
+            syncer.syncDirectory(dir);
+
+            // A segment stays listed until its file is gone (deleting a file that is still
+            // mapped fails on Windows); nothing points into it, so the next compaction retries
+            long undeleted = 0;
+            for (Segment segment : oldSegments) {
+                segment.close();
+                try {
+                    Files.deleteIfExists(segment.path);
+                    segments.remove(segment.id);
+                } catch (IOException e) {
+                    System.err.println("Could not delete compacted " + segment.path.getFileName() + ": " + e.getMessage());
+                    undeleted += segment.size;
+                }
+            }
+            deadBytes = undeleted;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactIfNeeded() {
+        boolean needed;
+        lock.readLock().lock();
+        try {
+            needed = deadBytes > liveBytes && deadBytes >= COMPACTION_MIN_DEAD_BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!needed) return;
+
+        try {
+            compact();
+        } catch (IOException e) {
+            System.err.println("Log compaction failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdownNow();
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments.values()) segment.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- Record I/O ---
+
+    private void append(byte type, String key, byte[] meta, byte[] payload) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        Segment written;
+        lock.writeLock().lock();
+        try {
+            long sequence = nextSequence++;
+            int recordSize = HEADER_SIZE + keyBytes.length + meta.length + payload.length;
+            ByteBuffer record = ByteBuffer.allocate(recordSize);
+            record.putInt(RECORD_MAGIC).put(type)
+                    .putInt(keyBytes.length).putInt(meta.length).putInt(payload.length)
+                    .putLong(sequence).putInt((int) crc.getValue())
+                    .put(keyBytes).put(meta).put(payload)
+                    .flip();
+
+            if (active.size > 0 && active.size + recordSize > SEGMENT_SIZE) {
+                active = createSegment(active.id + 1);
+            }
+            long offset = active.append(record);
+            written = active;
+
+            int payloadStart = HEADER_SIZE + keyBytes.length + meta.length;
+            apply(type, key, meta, new RecordLocation(active.id, offset, recordSize, payloadStart,
+                    payload.length, (int) crc.getValue(), sequence));
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Synced outside the lock so concurrent appends can share a group commit
+        try {
+            syncer.sync(written.channel);
+        } catch (ClosedChannelException e) {
+            // Compacted away in the meantime; compaction forces its copies before deleting
+        }
+    }
+
+    private byte[] readPayload(String key) throws IOException {
+        lock.readLock().lock();
+        try {
+            RecordLocation loc = index.get(key);
+            if (loc == null) return null;
+
+            byte[] payload = new byte[loc.payloadLength];
+            segments.get(loc.segmentId).slice(loc.payloadOffset, loc.payloadLength).get(payload);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != loc.payloadCrc) {
+                throw new IOException("Checksum mismatch in log record for " + key);
+            }
+            return payload;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads every record header (plus key and meta) in a segment into the index.
+     * A record cut short by a crash ends the scan; in the last segment it is truncated away.
+     */
+    private void scan(Segment segment, boolean isLast) throws IOException {
+        long fileSize = segment.channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        long pos = 0;
+
+        while (pos + HEADER_SIZE <= fileSize) {
+            header.clear();
+            readFully(segment.channel, header, pos);
+            header.flip();
+            if (header.getInt() != RECORD_MAGIC) break;
+
+            byte type = header.get();
+            int keyLength = header.getInt();
+            int metaLength = header.getInt();
+            int payloadLength = header.getInt();
+            long sequence = header.getLong();
+            int payloadCrc = header.getInt();
+
+            long recordSize = (long) HEADER_SIZE + keyLength + metaLength + payloadLength;
+            if (keyLength < 0 || metaLength < 0 || payloadLength < 0 || pos + recordSize > fileSize) break;
+
+            ByteBuffer keyAndMeta = ByteBuffer.allocate(keyLength + metaLength);
+            readFully(segment.channel, keyAndMeta, pos + HEADER_SIZE);
+            byte[] keyBytes = Arrays.copyOfRange(keyAndMeta.array(), 0, keyLength);
+            byte[] meta = Arrays.copyOfRange(keyAndMeta.array(), keyLength, keyLength + metaLength);
+
+            apply(type, new String(keyBytes, StandardCharsets.UTF_8), meta, new RecordLocation(segment.id, pos,
+                    (int) recordSize, HEADER_SIZE + keyLength + metaLength, payloadLength, payloadCrc, sequence));
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            pos += recordSize;
+        }
+
+        if (pos < fileSize) {
+            if (isLast) {
+                System.err.println("Truncating torn record at end of " + segment.path.getFileName());
+                segment.channel.truncate(pos);
+            } else {
+                System.err.println("Ignoring unreadable tail of " + segment.path.getFileName());
+            }
+        }
+        segment.size = pos;
+    }
+
+    /**
+     * Points the index at a newly written or scanned record and updates the byte accounting.
+     */
+    private void apply(byte type, String key, byte[] meta, RecordLocation loc) throws IOException {
+        RecordLocation previous = index.get(key);
+        if (previous != null && previous.sequence > loc.sequence) {
+            deadBytes += loc.recordSize; // An older copy (e.g. left over from an interrupted compaction)
+            return;
+        }
+        index.put(key, loc);
+        liveBytes += loc.recordSize;
+        if (previous != null) {
+            liveBytes -= previous.recordSize;
+            deadBytes += previous.recordSize;
+        }
+
+        if (type == TYPE_COURSE) {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(meta));
+            String owner = in.readUTF();
+            String id = in.readUTF();
+            String name = in.readUTF();
+            double grade = in.readDouble();
+            headersByOwner.computeIfAbsent(owner, k -> new LinkedHashMap<>())
+                    .put(id, new CourseHeader(id, name, owner, grade, loc.sequence));
+        }
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        Path path = dir.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        Segment segment = new Segment(id, path);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) throw new EOFException();
+        }
+    }
+
+    private static String userKey(String username) {
+        return "u:" + username;
+    }
+
+    private static String courseKey(String username, String courseId) {
+        return "c:" + username + "/" + courseId;
+    }
+
+    // --- Helper Classes ---
+
+    /**
+     * Where the newest record for a key lives.
+     */
+    private static final class RecordLocation {
+        final int segmentId;
+        final long recordOffset;
+        final int recordSize;
+        final long payloadOffset;
+        final int payloadLength;
+        final int payloadCrc;
+        final long sequence;
+
+        RecordLocation(int segmentId, long recordOffset, int recordSize, int payloadStart,
+                int payloadLength, int payloadCrc, long sequence) {
+            this.segmentId = segmentId;
+            this.recordOffset = recordOffset;
+            this.recordSize = recordSize;
+            this.payloadOffset = recordOffset + payloadStart;
+            this.payloadLength = payloadLength;
+            this.payloadCrc = payloadCrc;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * One segment file. Appends go through the channel; reads go through a read-only mapping.
+     * Reads past the mapped length (records appended since) are read from the channel until
+     * the unmapped tail reaches MAP_CHUNK or the mapped length, and only then is the mapping
+     * re-created over the whole file, so an active segment is remapped a few times at most.
+     */
+    private static final class Segment {
+        final int id;
+        final Path path;
+        final FileChannel channel;
+        long size;
+        private MappedByteBuffer mapping;
+
+        Segment(int id, Path path) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.size = channel.size();
+        }
+
+        /** Writes a full record at the end of the segment and returns its offset. */
+        long append(ByteBuffer record) throws IOException {
+            long offset = size;
+            while (record.hasRemaining()) {
+                size += channel.write(record, size);
+            }
+            return offset;
+        }
+
+        /** Returns a buffer over [offset, offset + length) of the segment. */
+        synchronized ByteBuffer slice(long offset, int length) throws IOException {
+            long mapped = mapping == null ? 0 : mapping.capacity();
+            if (offset + length > mapped) {
+                if (size - mapped < Math.min(MAP_CHUNK, mapped)) {
+                    ByteBuffer copy = ByteBuffer.allocate(length);
+                    readFully(channel, copy, offset);
+                    copy.flip();
+                    return copy;
+                }
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer view = mapping.duplicate();
+            view.position((int) offset).limit((int) offset + length);
+            return view.slice();
+        }
+
+        void close() throws IOException {
+            mapping = null;
+            channel.close();
+        }
+    }
+}
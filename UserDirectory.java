@@ -0,0 +1,261 @@
+package application;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * In-memory directory of registered users, used by login and registration instead of
+ * reading a user file on every attempt.
+ *
+ * At startup every stored username is listed once (no user files are read) into a
+ * concurrent map and a Bloom filter. The filter answers "definitely not registered"
+ * from a small bit array, so floods of unknown names never reach the map or the disk.
+ * A user's record is read from disk on its first successful lookup and then kept.
+ * DataManager.saveUser calls onUserSaved, which keeps the directory consistent.
+ *
+ * Passwords are checked with PasswordHasher. Successful checks are remembered in a
+ * small LRU cache keyed by an HMAC of the stored hash and the password (under a
+ * per-process random key), so repeat logins skip the slow hash; failures are never cached.
+ */
+final class UserDirectory {
+
+    private static final int VERIFY_CACHE_SIZE = Integer.getInteger("pcgms.auth.cacheSize", 1024);
+
+    private static final Map<String, UserRecord> users = new ConcurrentHashMap<>();
+    private static volatile BloomFilter filter = new BloomFilter(1024);
+    private static volatile boolean loaded;
+
+    // Username -> HMAC of (stored hash, password) for the last successful check
+    private static final Map<String, byte[]> verified = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > VERIFY_CACHE_SIZE;
+        }
+    };
+    private static final byte[] verifyKey = new byte[32];
+
+    private static final Metrics.Counter NEGATIVE_LOOKUPS = Metrics.counter("users.bloomRejected");
+    private static final Metrics.Counter VERIFY_CACHE_HITS = Metrics.counter("users.verifyCacheHits");
+    private static final Metrics.Counter SLOW_HASHES = Metrics.counter("users.slowHashes");
+
+    static {
+        new SecureRandom().nextBytes(verifyKey);
+        Metrics.gauge("users.registered", users::size);
+    }
+
+    private UserDirectory() {
+    }
+
+    // --- Loading ---
+
+    /**
+     * Lists all stored usernames into the directory. Runs once; later calls return at once.
+     * Called from the startup prewarm, and by any lookup that comes first.
+     */
+    static void load() {
+        if (loaded) return;
+        synchronized (UserDirectory.class) {
+            if (loaded) return;
+            List<String> usernames = DataManager.listUsernames();
+            BloomFilter fresh = new BloomFilter(Math.max(1024, usernames.size() * 2));
+            for (String username : usernames) {
+                users.putIfAbsent(username, new UserRecord(null));
+                fresh.add(username);
+            }
+            filter = fresh;
+            loaded = true;
+        }
+    }
+
+    /**
+     * Keeps the directory in step with a user just written by DataManager.saveUser.
+     * Before the directory is loaded this does nothing: the load will list the new file.
+     */
+    static void onUserSaved(User user) {
+        synchronized (UserDirectory.class) {
+            if (!loaded) return;
+            // Only a new name goes into the filter; saving an existing user again must not count
+            boolean isNew = users.put(user.getUsername(), new UserRecord(user)) == null;
+            if (isNew && !filter.add(user.getUsername())) {
+                // Past its planned capacity: rebuild twice as large so false positives stay rare
+                BloomFilter bigger = new BloomFilter(users.size() * 4);
+                for (String username : users.keySet()) bigger.add(username);
+                filter = bigger;
+            }
+        }
+        synchronized (verified) {
+            verified.remove(user.getUsername()); // The password may have changed
+        }
+    }
+
+    // --- Lookups ---
+
+    static boolean isRegistered(String username) {
+        load();
+        if (!filter.mightContain(username)) {
+            NEGATIVE_LOOKUPS.increment();
+            return false;
+        }
+        return users.containsKey(username);
+    }
+
+    /**
+     * Returns the stored user, reading its file on first access; null if not registered.
+     */
+    static User find(String username) {
+        if (!isRegistered(username)) return null;
+        UserRecord record = users.get(username);
+        if (record == null) return null;
+        User user = record.user;
+        if (user == null) {
+            user = DataManager.loadUser(username);
+            if (user == null) return null;
+            users.replace(username, record, new UserRecord(user));
+        }
+        return user;
+    }
+
+    // --- Authentication ---
+
+    /**
+     * Returns the user if the password is correct, otherwise null. Passwords still stored
+     * in plain text (or with too few hash iterations) are re-hashed and saved on success.
+     */
+    static User authenticate(String username, String password) {
+        User user = find(username);
+        if (user == null) return null;
+
+        String stored = user.getPassword();
+        byte[] fingerprint = fingerprint(stored, password);
+        synchronized (verified) {
+            byte[] known = verified.get(username);
+            if (known != null && MessageDigest.isEqual(known, fingerprint)) {
+                VERIFY_CACHE_HITS.increment();
+                return user;
+            }
+        }
+
+        SLOW_HASHES.increment();
+        if (!PasswordHasher.verify(password, stored)) return null;
+
+        if (PasswordHasher.needsRehash(stored)) {
+            User upgraded = new User(username, PasswordHasher.hash(password));
+            try {
+                DataManager.saveUser(upgraded);
+                user = upgraded;
+                fingerprint = fingerprint(upgraded.getPassword(), password);
+            } catch (IOException e) {
+                System.err.println("Could not upgrade password hash for " + username + ": " + e.getMessage());
+            }
+        }
+        synchronized (verified) {
+            verified.put(username, fingerprint);
+        }
+        return user;
+    }
+
+    /**
+     * Creates and saves a new user with a hashed password.
+     */
+    static User register(String username, String password) throws IOException {
+        User user = new User(username, PasswordHasher.hash(password));
+        DataManager.saveUser(user);
+        return user;
+    }
+
+    private static byte[] fingerprint(String stored, String password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(verifyKey, "HmacSHA256"));
+            mac.update(String.valueOf(stored).getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    /**
+     * A directory entry; the user is null until first read from disk.
+     */
+    private static final class UserRecord {
+        final User user;
+
+        UserRecord(User user) {
+            this.user = user;
+        }
+    }
+
+    /**
+     * A thread-safe Bloom filter over usernames, sized for about 1% false positives
+     * at its planned capacity (10 bits and 7 probes per name).
+     */
+    private static final class BloomFilter {
+        private static final int PROBES = 7;
+
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int capacity;
+        private int size; // Guarded by UserDirectory.class
+
+        BloomFilter(int capacity) {
+            this.capacity = capacity;
+            this.bitCount = Math.max(64, (long) capacity * 10);
+            this.bits = new AtomicLongArray((int) ((bitCount + 63) / 64));
+        }
+
+        /**
+         * Adds a name not added before; returns false once the filter holds more than its
+         * capacity.
+         */
+        boolean add(String username) {
+            long h1 = hash(username);
+            long h2 = mix(h1) | 1;
+            for (int i = 0; i < PROBES; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                bits.getAndAccumulate(word, 1L << bit, (a, b) -> a | b);
+            }
+            return ++size <= capacity;
+        }
+
+        boolean mightContain(String username) {
+            long h1 = hash(username);
+            long h2 = mix(h1) | 1;
+            for (int i = 0; i < PROBES; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        // 64-bit FNV-1a over the name's characters
+        private static long hash(String s) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < s.length(); i++) {
+                h ^= s.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return h;
+        }
+
+        // Stafford variant 13 finalizer, giving a second independent-looking hash
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of benchmarks.jar: JMH's own command line, with results written as JSON
+ * to benchmarks.json unless -rf / -rff say otherwise, so runs can be compared.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) options.addAll(List.of("-rf", "json"));
+        if (!options.contains("-rff")) options.addAll(List.of("-rff", "benchmarks.json"));
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,267 @@
+package application;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmarks for the grade engine: a group's Best-of-N contribution, the grading
+ * policies, a whole course grade, and what-if evaluation.
+ *
+ * Benchmarks that edit a score do so on every call (item invocation % size, score
+ * invocation % 101), so cached results are always recomputed; the ".cached" variant
+ * measures the cache hit. The group benchmarks clear every tenth edited score instead,
+ * so about one item in ten stays ungraded, as in the synthetic data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class GradeBenchmarks {
+
+    // Scenarios per what-if call
+    private static final int WHAT_IF_ROWS = 32;
+
+    // --- Groups ---
+
+    @State(Scope.Thread)
+    public static class GroupState {
+        @Param({ "10", "100", "1000", "10000" })
+        int items;
+
+        @Param({ "0.25", "0.5", "1.0" })
+        double bestOfRatio;
+
+        Course.EvaluationGroup group;
+        int invocation;
+
+        @Setup
+        public void setUp() {
+            group = syntheticCourse(1, items, bestOfRatio, new SplittableRandom(items)).getEvaluationGroups().get(0);
+        }
+
+        void editScore() {
+            editGroupScore(group, items, invocation++);
+        }
+    }
+
+    @Benchmark
+    public double calculateContribution(GroupState state) {
+        state.editScore();
+        return state.group.calculateContribution();
+    }
+
+    @Benchmark
+    public double calculateContributionCached(GroupState state) {
+        return state.group.calculateContribution();
+    }
+
+    // --- Grading Policies ---
+
+    /**
+     * The same Best-of-N selection declared as drop-lowest on a group where every item
+     * counts (compare with calculateContribution at equal params), alone, with item
+     * weights, or with a running-average assumption for the ungraded items.
+     */
+    @State(Scope.Thread)
+    public static class PolicyState {
+        @Param({ "10", "100", "1000", "10000" })
+        int items;
+
+        @Param({ "0.25", "0.5", "1.0" })
+        double bestOfRatio;
+
+        @Param({ "dropLowest", "itemWeights", "runningAverage" })
+        String policy;
+
+        Course.EvaluationGroup group;
+        int invocation;
+
+        @Setup
+        public void setUp() {
+            group = syntheticCourse(1, items, 1.0, new SplittableRandom(items)).getEvaluationGroups().get(0);
+            GradingPolicy dropLowest = GradingPolicy.DEFAULT
+                    .withDropLowest(items - Math.max(1, (int) Math.round(items * bestOfRatio)));
+            switch (policy) {
+                case "itemWeights":
+                    double[] weights = new double[items];
+                    for (int i = 0; i < items; i++) weights[i] = 1 + i % 4;
+                    group.setPolicy(dropLowest.withItemWeights(weights));
+                    break;
+                case "runningAverage":
+                    group.setPolicy(dropLowest.withUngraded(GradingPolicy.Ungraded.RUNNING_AVERAGE));
+                    break;
+                default:
+                    group.setPolicy(dropLowest);
+            }
+        }
+    }
+
+    @Benchmark
+    public double gradingPolicy(PolicyState state) {
+        editGroupScore(state.group, state.items, state.invocation++);
+        return state.group.calculateContribution();
+    }
+
+    private static void editGroupScore(Course.EvaluationGroup group, int items, int invocation) {
+        group.updateScore(invocation % items, invocation % 10 == 0 ? -1 : invocation % 101, 100);
+    }
+
+    /**
+     * Replacement between groups: editing the source group recomputes both through the plan.
+     */
+    @State(Scope.Thread)
+    public static class ReplacementState {
+        @Param({ "10", "100", "1000", "10000" })
+        int itemsPerGroup;
+
+        Course course;
+        Course.EvaluationGroup source;
+        int invocation;
+
+        @Setup
+        public void setUp() {
+            course = syntheticCourse(2, itemsPerGroup, 0.5, new SplittableRandom(itemsPerGroup));
+            course.getEvaluationGroups().get(0).setPolicy(GradingPolicy.DEFAULT.withReplacementFrom("Group 1"));
+            source = course.getEvaluationGroups().get(1);
+        }
+    }
+
+    @Benchmark
+    public double gradingPlanReplacement(ReplacementState state) {
+        state.source.updateScore(state.invocation % state.itemsPerGroup, state.invocation % 101, 100);
+        state.invocation++;
+        return state.course.calculateCurrentGrade();
+    }
+
+    // --- Courses ---
+
+    @State(Scope.Thread)
+    public static class CourseState {
+        @Param({ "4", "16" })
+        int groups;
+
+        @Param({ "10", "100", "1000", "10000" })
+        int itemsPerGroup;
+
+        Course course;
+        List<Course.EvaluationGroup> all;
+        int invocation;
+
+        @Setup
+        public void setUp() {
+            course = syntheticCourse(groups, itemsPerGroup, 0.5, new SplittableRandom(groups * 31L + itemsPerGroup));
+            all = course.getEvaluationGroups();
+        }
+    }
+
+    @Benchmark
+    public double calculateCurrentGrade(CourseState state) {
+        int i = state.invocation++;
+        state.all.get(i % state.groups).updateScore(i % state.itemsPerGroup, i % 101, 100);
+        return state.course.calculateCurrentGrade();
+    }
+
+    // --- What-If ---
+
+    /**
+     * WHAT_IF_ROWS scenarios per call, each varying one item of the last group: through
+     * the mutable Course, as a CompiledCourse batch, and as a CompiledCourse sweep.
+     */
+    @State(Scope.Thread)
+    public static class WhatIfState {
+        @Param({ "4", "16" })
+        int groups;
+
+        @Param({ "10", "100", "1000" })
+        int itemsPerGroup;
+
+        Course course;
+        Course.EvaluationGroup last;
+        CompiledCourse compiled;
+        double[] base;
+        double[] batch;
+        double[] grades = new double[WHAT_IF_ROWS];
+        double[] values = new double[WHAT_IF_ROWS];
+        int[] slots = new int[1];
+        int invocation;
+
+        @Setup
+        public void setUp() {
+            course = syntheticCourse(groups, itemsPerGroup, 0.5, new SplittableRandom(groups * 17L + itemsPerGroup));
+            last = course.getEvaluationGroups().get(groups - 1);
+            compiled = new CompiledCourse(course);
+            base = compiled.baseScores();
+            batch = compiled.baseBatch(WHAT_IF_ROWS);
+            for (int r = 0; r < WHAT_IF_ROWS; r++) values[r] = (double) r / WHAT_IF_ROWS;
+        }
+    }
+
+    @Benchmark
+    public double whatIfUpdateScore(WhatIfState state) {
+        int item = state.invocation++ % state.itemsPerGroup;
+        double sum = 0;
+        for (int r = 0; r < WHAT_IF_ROWS; r++) {
+            state.last.updateScore(item, r, WHAT_IF_ROWS);
+            sum += state.course.calculateCurrentGrade();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double[] whatIfEvaluateBatch(WhatIfState state) {
+        CompiledCourse compiled = state.compiled;
+        int slot = compiled.slot(state.groups - 1, state.invocation++ % state.itemsPerGroup);
+        for (int r = 0; r < WHAT_IF_ROWS; r++)
+            state.batch[r * compiled.getWidth() + slot] = state.values[r];
+        compiled.evaluateBatch(state.batch, state.grades);
+        // Put the row back, so every call sweeps a single item
+        for (int r = 0; r < WHAT_IF_ROWS; r++)
+            state.batch[r * compiled.getWidth() + slot] = state.base[slot];
+        return state.grades;
+    }
+
+    @Benchmark
+    public double[] whatIfEvaluateSweep(WhatIfState state) {
+        state.slots[0] = state.compiled.slot(state.groups - 1, state.invocation++ % state.itemsPerGroup);
+        state.compiled.evaluateSweep(state.slots, state.values, state.grades);
+        return state.grades;
+    }
+
+    // --- Synthetic Data ---
+
+    /**
+     * A course of equally weighted groups, each counting the best ratio * size items,
+     * with about nine in ten items graded.
+     */
+    static Course syntheticCourse(int groups, int size, double bestOfRatio, SplittableRandom random) {
+        return syntheticCourse("bench", "BENCH", groups, size, bestOfRatio, random);
+    }
+
+    static Course syntheticCourse(String owner, String id, int groups, int size, double bestOfRatio,
+                                  SplittableRandom random) {
+        Course course = new Course(id, "Benchmark " + id, owner);
+        int counted = Math.max(1, (int) Math.round(size * bestOfRatio));
+        for (int g = 0; g < groups; g++) {
+            course.addEvaluationGroup("Group " + g, 100.0 / groups, size, counted);
+            Course.EvaluationGroup group = course.getEvaluationGroups().get(g);
+            for (int i = 0; i < size; i++) {
+                if (random.nextInt(10) != 0) group.updateScore(i, random.nextInt(101), 100);
+            }
+        }
+        return course;
+    }
+}
@@ -0,0 +1,127 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the DataManager persistence paths, against an on-disk population of
+ * users with five courses each.
+ *
+ * DataManager reads its settings once, when the class loads, so they are set from the
+ * params before the first use in each fork:
+ *   durability  -Dpcgms.durability (none | fsync | group_commit)
+ *   data dir    -Dpcgms.data.dir if given to the forked JVM (-jvmArgsAppend), else a new temp dir
+ * Running with -f 0 keeps whatever the first trial set up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class PersistenceBenchmarks {
+
+    private static final int COURSES_PER_POPULATION_USER = 5;
+
+    /**
+     * The stored users user0..user[population - 1], with their courses.
+     */
+    @State(Scope.Benchmark)
+    public static class Population {
+        @Param({ "10", "1000" })
+        int population;
+
+        @Param({ "fsync" })
+        String durability;
+
+        @Setup(Level.Trial)
+        public void populate() throws IOException {
+            // Must happen before DataManager is loaded
+            System.setProperty("pcgms.durability", durability);
+            if (System.getProperty("pcgms.data.dir") == null) {
+                System.setProperty("pcgms.data.dir", Files.createTempDirectory("pcgms-bench").toString());
+            }
+
+            SplittableRandom random = new SplittableRandom(42);
+            for (int u = 0; u < population; u++) {
+                String username = "user" + u;
+                DataManager.saveUser(new User(username, "pw" + u));
+                for (int c = 0; c < COURSES_PER_POPULATION_USER; c++) {
+                    DataManager.saveCourse(GradeBenchmarks.syntheticCourse(username, "C" + c, 4, 10, 0.5, random));
+                }
+            }
+        }
+    }
+
+    /**
+     * One more user, with coursesPerUser courses, whose saves and loads are measured.
+     */
+    @State(Scope.Thread)
+    public static class UserCourses {
+        @Param({ "1", "10", "100" })
+        int coursesPerUser;
+
+        String username;
+        List<Course> courses = new ArrayList<>();
+        int invocation;
+
+        @Setup(Level.Trial)
+        public void setUp(Population population) throws IOException {
+            username = "bench-" + population.population + "-" + coursesPerUser;
+            SplittableRandom random = new SplittableRandom(coursesPerUser);
+            for (int c = 0; c < coursesPerUser; c++) {
+                Course course = GradeBenchmarks.syntheticCourse(username, "B" + c, 4, 10, 0.5, random);
+                DataManager.saveCourse(course);
+                courses.add(course);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Counter {
+        int invocation;
+    }
+
+    @Benchmark
+    public User loadUser(Population population, Counter counter) {
+        return DataManager.loadUser("user" + (counter.invocation++ % population.population));
+    }
+
+    @Benchmark
+    public Course saveCourse(UserCourses user) throws IOException {
+        int i = user.invocation++;
+        Course course = user.courses.get(i % user.coursesPerUser);
+        course.getEvaluationGroups().get(0).updateScore(i % 10, i % 101, 100);
+        DataManager.saveCourse(course);
+        return course;
+    }
+
+    @Benchmark
+    public List<Course> loadCoursesForUser(UserCourses user) {
+        return DataManager.loadCoursesForUser(user.username);
+    }
+
+    @Benchmark
+    public List<Course> loadCoursesForUserUncached(UserCourses user) {
+        for (Course course : user.courses) {
+            DataManager.invalidateCourse(user.username, course.getId());
+        }
+        return DataManager.loadCoursesForUser(user.username);
+    }
+}